@@ -43,12 +43,9 @@ import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
-import redis.clients.jedis.Jedis;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A collection of methods for interacting with the JadedMC core.
@@ -71,15 +68,8 @@ public class JadedAPI {
     public static PlayerMap<NetworkPlayer> getNetworkPlayers() {
         final PlayerMap<NetworkPlayer> players = new PlayerMap<>();
 
-        try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
-            final Set<String> names = jedis.keys("jadedplayers:*");
-
-            for(final String key : names) {
-                final String json = jedis.get(key);
-                final Document document = Document.parse(json);
-
-                players.add(new NetworkPlayer(document));
-            }
+        for(final String json : plugin.getRedis().values("jadedplayers:*")) {
+            players.add(new NetworkPlayer(Document.parse(json)));
         }
 
         return players;
@@ -110,7 +100,7 @@ public class JadedAPI {
     }
 
     public static void sendToServer(@NotNull final UUID uuid, @NotNull final String server) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> plugin.getRedis().publish("proxy", "connect " + uuid.toString() + " " + server));
+        plugin.getExecutorManager().getRedisExecutor().tryExecute(() -> plugin.getRedis().publish("proxy", "connect " + uuid.toString() + " " + server));
     }
 
     public static void sendToLobby(@NotNull final Player player, final Minigame minigame) {
@@ -208,19 +198,14 @@ public class JadedAPI {
     public static PlayerMap<NetworkPlayer> getPlayers(final Minigame... minigames) {
         final PlayerMap<NetworkPlayer> players = new PlayerMap<>();
 
-        try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
-            final Set<String> names = jedis.keys("jadedplayers:*");
-
-            for(String key : names) {
-                String json = jedis.get(key);
-                Document document = Document.parse(json);
-
-                if(!Arrays.asList(minigames).contains(Minigame.valueOf(document.getString("game")))) {
-                    continue;
-                }
+        for(final String json : plugin.getRedis().values("jadedplayers:*")) {
+            final Document document = Document.parse(json);
 
-                players.add(new NetworkPlayer(document));
+            if(!Arrays.asList(minigames).contains(Minigame.valueOf(document.getString("game")))) {
+                continue;
             }
+
+            players.add(new NetworkPlayer(document));
         }
 
         return players;
@@ -276,16 +261,40 @@ public class JadedAPI {
         return new NetworkPlayer(Document.parse(plugin.getRedis().get("jadedplayers:" + uuid.toString())));
     }
 
+    /**
+     * Get the NetworkPlayers of multiple players, using a single MGET.
+     * Players who are not online are left out.
+     * Warning: Does so on whatever thread it is called from.
+     * @param uuids UUIDs of the players.
+     * @return PlayerMap of the online NetworkPlayers.
+     */
     public static PlayerMap<NetworkPlayer> getNetworkPlayers(final Collection<UUID> uuids) {
         final PlayerMap<NetworkPlayer> networkPlayers = new PlayerMap<>();
 
+        final List<String> keys = new ArrayList<>();
         for(final UUID uuid : uuids) {
-            networkPlayers.add(getNetworkPlayer(uuid));
+            keys.add("jadedplayers:" + uuid.toString());
+        }
+
+        for(final String json : plugin.getRedis().mget(keys)) {
+            if(json != null) {
+                networkPlayers.add(new NetworkPlayer(Document.parse(json)));
+            }
         }
 
         return networkPlayers;
     }
 
+    /**
+     * Get the NetworkPlayers of multiple players async, using a single MGET.
+     * Players who are not online are left out.
+     * @param uuids UUIDs of the players.
+     * @return CompletableFuture with a PlayerMap of the online NetworkPlayers.
+     */
+    public static CompletableFuture<PlayerMap<NetworkPlayer>> getNetworkPlayersAsync(final Collection<UUID> uuids) {
+        return plugin.getExecutorManager().getRedisExecutor().supply(() -> getNetworkPlayers(uuids));
+    }
+
     public static Redis getRedis() {
         return plugin.getRedis();
     }
@@ -299,12 +308,21 @@ public class JadedAPI {
         return plugin.getLobbyManager().isLobbyWorld(world);
     }
 
+    /**
+     * Lets chunks preloaded when a world was copied unload normally again.
+     * Call once players have arrived in the world.
+     * @param world World to release the chunks of.
+     */
+    public static void releasePreloadedChunks(@NotNull final World world) {
+        plugin.getWorldManager().releasePreloadedChunks(world);
+    }
+
     public static void summonPlayer(@NotNull final UUID uuid) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> plugin.getRedis().publish("proxy", "connect " + uuid.toString() + " " + plugin.getInstanceMonitor().getCurrentInstance().getName()));
+        plugin.getExecutorManager().getRedisExecutor().tryExecute(() -> plugin.getRedis().publish("proxy", "connect " + uuid.toString() + " " + plugin.getInstanceMonitor().getCurrentInstance().getName()));
     }
 
     public static void summonPlayers(@NotNull final Collection<UUID> uuids) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getExecutorManager().getRedisExecutor().tryExecute(() -> {
             final StringBuilder builder = new StringBuilder();
 
             for(final UUID uuid : uuids) {
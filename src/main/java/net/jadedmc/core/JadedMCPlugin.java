@@ -30,6 +30,7 @@ import net.jadedmc.core.commands.AbstractCommand;
 import net.jadedmc.core.database.MongoDB;
 import net.jadedmc.core.database.MySQL;
 import net.jadedmc.core.database.Redis;
+import net.jadedmc.core.executors.ExecutorManager;
 import net.jadedmc.core.leaderboards.LeaderboardManager;
 import net.jadedmc.core.listeners.*;
 import net.jadedmc.core.lobby.LobbyManager;
@@ -46,10 +47,17 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 public final class JadedMCPlugin extends JavaPlugin {
     private AchievementManager achievementManager;
     private ConfigManager configManager;
+    private ExecutorManager executorManager;
     private InstanceMonitor instanceMonitor;
     private LeaderboardManager leaderboardManager;
     private LobbyManager lobbyManager;
@@ -68,6 +76,7 @@ public final class JadedMCPlugin extends JavaPlugin {
         // Load server settings.
         configManager = new ConfigManager(this);
         hookManager = new HookManager(this);
+        executorManager = new ExecutorManager(this);
 
         // Load Databases
         mongoDB = new MongoDB(this);
@@ -102,8 +111,21 @@ public final class JadedMCPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        // Deletes the search from Redis
+        // Deletes the server from Redis
+        redis.hdel("servers", configManager.getConfig().getString("serverName"));
         redis.del("servers:" + configManager.getConfig().getString("serverName"));
+        redis.publish("instances", "shutdown " + configManager.getConfig().getString("serverName"));
+
+        // Saves any player data that has not been written yet.
+        jadedPlayerManager.getProfileWriter().flush();
+        achievementManager.getAchievementWriter().flush();
+
+        // Lets any queued I/O finish before the connections close.
+        executorManager.shutdown();
+        FileUtils.shutdown();
+
+        // Closes all MySQL connections.
+        mySQL.closeConnection();
     }
 
     /**
@@ -111,6 +133,7 @@ public final class JadedMCPlugin extends JavaPlugin {
      */
     private void registerListeners() {
         // Plugin listeners.
+        getServer().getPluginManager().registerEvents(new AsyncPlayerPreLoginListener(this), this);
         getServer().getPluginManager().registerEvents(new BlockBreakListener(this), this);
         getServer().getPluginManager().registerEvents(new BlockPlaceListener(this), this);
         getServer().getPluginManager().registerEvents(new ChannelMessageSendListener(this), this);
@@ -132,6 +155,7 @@ public final class JadedMCPlugin extends JavaPlugin {
     /**
      * Updates worlds listed in the config file.
      * Called when the server is first started.
+     * Worlds are downloaded in parallel on the file executor, but startup waits for all of them to finish.
      */
     private void updateWorlds() {
         ConfigurationSection worldsSection = configManager.getConfig().getConfigurationSection("Worlds");
@@ -141,20 +165,40 @@ public final class JadedMCPlugin extends JavaPlugin {
             return;
         }
 
-        // Loops through each world configured.
-        for(String world : worldsSection.getKeys(false)) {
+        final long start = System.currentTimeMillis();
+        final Set<String> worlds = worldsSection.getKeys(false);
+        final AtomicInteger finished = new AtomicInteger();
+        final List<CompletableFuture<Void>> downloads = new ArrayList<>();
+
+        // Starts a download for each world configured.
+        for(String world : worlds) {
             String fileName = configManager.getConfig().getString("Worlds." + world);
 
-            // Deletes the world folder if it currently already exists.
-            File worldFolder = new File(getServer().getPluginsFolder().getParent(), world);
-            if(worldFolder.exists()) {
-                FileUtils.deleteDirectory(worldFolder);
-            }
+            final CompletableFuture<Void> download = executorManager.getFileExecutor().<Void>supply(() -> {
+                final long worldStart = System.currentTimeMillis();
+
+                // Deletes the world folder if it currently already exists.
+                File worldFolder = new File(getServer().getPluginsFolder().getParent(), world);
+                if(worldFolder.exists()) {
+                    FileUtils.deleteDirectory(worldFolder);
+                }
 
-            // Downloads the world from MongoDB.
-            File newWorld = worldManager.downloadWorldSync(fileName);
-            newWorld.renameTo(worldFolder);
+                // Downloads the world from MongoDB.
+                worldManager.downloadWorldSync(fileName, worldFolder);
+
+                getLogger().info("Downloaded world " + world + " (" + fileName + ") in " + (System.currentTimeMillis() - worldStart) + "ms. [" + finished.incrementAndGet() + "/" + worlds.size() + "]");
+                return null;
+            }).exceptionally(exception -> {
+                getLogger().log(Level.SEVERE, "Could not download world " + world + " (" + fileName + ").", exception);
+                return null;
+            });
+
+            downloads.add(download);
         }
+
+        // The worlds need to exist before the server loads them, so wait for every download.
+        CompletableFuture.allOf(downloads.toArray(new CompletableFuture[0])).join();
+        getLogger().info("Updated " + finished.get() + "/" + worlds.size() + " worlds in " + (System.currentTimeMillis() - start) + "ms.");
     }
 
     public AchievementManager getAchievementManager() {
@@ -165,6 +209,10 @@ public final class JadedMCPlugin extends JavaPlugin {
         return this.configManager;
     }
 
+    public ExecutorManager getExecutorManager() {
+        return this.executorManager;
+    }
+
     public HookManager getHookManager() {
         return this.hookManager;
     }
@@ -32,8 +32,6 @@ import net.jadedmc.utils.chat.ChatUtils;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -43,6 +41,7 @@ import java.util.List;
  */
 public class Achievement {
     private final JadedMCPlugin plugin;
+    private final int index;
     private final Minigame game;
     private final String id;
     private final String name;
@@ -53,6 +52,7 @@ public class Achievement {
     /**
      * Creates the Achievement.
      * @param plugin Instance of the plugin.
+     * @param index Dense index of the achievement, assigned by the AchievementManager.
      * @param game Game the achievement is for.
      * @param id ID of the achievement.
      * @param name Name of the achievement.
@@ -60,8 +60,9 @@ public class Achievement {
      * @param points Number of Achievement Points that should be awarded.
      * @param rewardsString Extra rewards.
      */
-    public Achievement(@NotNull final JadedMCPlugin plugin, final Minigame game, final String id, final String name, final String description, final int points, final String rewardsString) {
+    public Achievement(@NotNull final JadedMCPlugin plugin, final int index, final Minigame game, final String id, final String name, final String description, final int points, final String rewardsString) {
         this.plugin = plugin;
+        this.index = index;
         this.game = game;
         this.id = id;
         this.name = name;
@@ -81,6 +82,14 @@ public class Achievement {
         return this.game;
     }
 
+    /**
+     * Get the index of the achievement, used to store which players own it.
+     * @return Achievement index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
     /**
      * Get the name of the achievement.
      * @return Achievement name.
@@ -130,12 +139,10 @@ public class Achievement {
         final JadedPlayer jadedPlayer = plugin.getJadedPlayerManager().getPlayer(player);
 
         // Exit if they already have the achievement.
-        if(jadedPlayer.getAchievements().contains(this)) {
+        if(!jadedPlayer.addAchievement(this)) {
             return false;
         }
 
-        jadedPlayer.getAchievements().add(this);
-
         StringBuilder rewardsString = new StringBuilder();
 
         for(String reward : rewards) {
@@ -146,18 +153,8 @@ public class Achievement {
         String message = "<yellow><obf>#</obf><green>>> Achievement Unlocked: <hover:show_text:'<green>" + name + "</green><newline><gray>" + description + "</gray><newline><newline><gray>Rewards:</gray>" + rewardsString + "'><gold>" + name  + "</gold></hover> <green><<<yellow><obf>#";
         ChatUtils.chat(player, message);
 
-        // Update MySQL.
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("INSERT INTO player_achievements (uuid,achievementID) VALUES (?,?)");
-                statement.setString(1, player.getUniqueId().toString());
-                statement.setString(2, id);
-                statement.executeUpdate();
-            }
-            catch (SQLException exception) {
-                exception.printStackTrace();
-            }
-        });
+        // Queue the unlock to be saved to MySQL.
+        plugin.getAchievementManager().getAchievementWriter().queue(player.getUniqueId(), id);
 
         return true;
     }
@@ -28,6 +28,7 @@ package net.jadedmc.core.achievements;
 import net.jadedmc.core.JadedMCPlugin;
 import net.jadedmc.core.minigames.Minigame;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -35,10 +36,16 @@ import java.util.*;
 
 /**
  * Manages the creation and access of Achievements.
+ * Every achievement is given a dense index, which players use to store which achievements they own.
+ * The achievements of each game are kept in prebuilt lists, which are rebuilt the first time they are needed after achievements are created or loaded.
  */
 public class AchievementManager {
     private final JadedMCPlugin plugin;
     private final Map<String, Achievement> achievements = new LinkedHashMap<>();
+    private final List<Achievement> indexedAchievements = new ArrayList<>();
+    private final AchievementWriter achievementWriter;
+    private volatile Map<Minigame, GameAchievements> gameAchievements = null;
+    private volatile int revision = 0;
 
     /**
      * Creates the Achievement Manager.
@@ -46,6 +53,7 @@ public class AchievementManager {
      */
     public AchievementManager(final JadedMCPlugin plugin) {
         this.plugin = plugin;
+        this.achievementWriter = new AchievementWriter(plugin);
 
         createAchievement(Minigame.GENERAL, "general_3", "Am I in Trouble?", "Beat a staff member in a game.", 5);
         createAchievement(Minigame.GENERAL, "general_1", "A Whole New World", "Join the server for the first time.", 5);
@@ -60,17 +68,19 @@ public class AchievementManager {
      * Loads all achievements from MySQL.
      */
     public void loadAchievements() {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("SELECT * FROM achievements_list");
+        plugin.getExecutorManager().getDatabaseExecutor().tryExecute(() -> {
+            try(Connection connection = plugin.getMySQL().borrowConnection()) {
+                PreparedStatement statement = connection.prepareStatement("SELECT * FROM achievements_list");
                 ResultSet resultSet = statement.executeQuery();
 
                 while(resultSet.next()) {
-                    if(achievements.containsKey(resultSet.getString("id"))) {
-                        continue;
-                    }
+                    synchronized (this) {
+                        if(achievements.containsKey(resultSet.getString("id"))) {
+                            continue;
+                        }
 
-                    achievements.put(resultSet.getString("id"), new Achievement(plugin, Minigame.valueOf(resultSet.getString("mode")), resultSet.getString("id"), resultSet.getString("name"), resultSet.getString("description"), resultSet.getInt("achievementPoints"), resultSet.getString("rewards")));
+                        register(Minigame.valueOf(resultSet.getString("mode")), resultSet.getString("id"), resultSet.getString("name"), resultSet.getString("description"), resultSet.getInt("achievementPoints"), resultSet.getString("rewards"));
+                    }
                 }
             }
             catch (SQLException exception) {
@@ -100,9 +110,9 @@ public class AchievementManager {
             rewardsString.append(rewards[i]);
         }
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("REPLACE INTO achievements_list (id,mode,name,description,achievementPoints,rewards) VALUES (?,?,?,?,?,?)");
+        plugin.getExecutorManager().getDatabaseExecutor().tryExecute(() -> {
+            try(Connection connection = plugin.getMySQL().borrowConnection()) {
+                PreparedStatement statement = connection.prepareStatement("REPLACE INTO achievements_list (id,mode,name,description,achievementPoints,rewards) VALUES (?,?,?,?,?,?)");
                 statement.setString(1, id);
                 statement.setString(2, game.toString());
                 statement.setString(3, name);
@@ -116,51 +126,137 @@ public class AchievementManager {
             }
         });
 
-        achievements.put(id, new Achievement(plugin, game, id, name, description, points, rewardsString.toString()));
+        register(game, id, name, description, points, rewardsString.toString());
     }
 
     /**
-     * Get all achievements from a given game.
-     * @param game Game to get achievements from.
-     * @return List of achievements in that game.
+     * Stores an achievement, keeping the index of any achievement it replaces.
+     * @param game Game the achievement is for.
+     * @param id ID of the achievement.
+     * @param name Name of the Achievement.
+     * @param description Description of the achievement.
+     * @param points Number of Achievement Points that should be awarded.
+     * @param rewardsString Other rewards, separated by semicolons.
      */
-    public List<Achievement> getAchievements(Minigame game) {
-        List<Achievement> gameAchievements = new ArrayList<>();
+    private synchronized void register(final Minigame game, final String id, final String name, final String description, final int points, final String rewardsString) {
+        final Achievement existing = achievements.get(id);
+        final int index = existing != null ? existing.getIndex() : indexedAchievements.size();
+        final Achievement achievement = new Achievement(plugin, index, game, id, name, description, points, rewardsString);
+
+        if(existing != null) {
+            indexedAchievements.set(index, achievement);
+        }
+        else {
+            indexedAchievements.add(achievement);
+        }
+
+        achievements.put(id, achievement);
 
-        for(Achievement achievement : achievements.values()) {
-            if(achievement.getGame() == game) {
-                gameAchievements.add(achievement);
+        // Lets players know their cached point totals may be out of date, and marks the game lists for a rebuild.
+        revision++;
+        gameAchievements = null;
+    }
+
+    /**
+     * Rebuilds the achievement lists of every game, and swaps them in all at once.
+     * Does nothing if they are already up to date, such as when another thread rebuilt them first.
+     * @return Achievement lists of every game.
+     */
+    private synchronized Map<Minigame, GameAchievements> rebuildGameAchievements() {
+        if(gameAchievements != null) {
+            return gameAchievements;
+        }
+
+        final Map<Minigame, List<Achievement>> grouped = new EnumMap<>(Minigame.class);
+        for(final Achievement achievement : achievements.values()) {
+            grouped.computeIfAbsent(achievement.getGame(), game -> new ArrayList<>()).add(achievement);
+        }
+
+        final Map<Minigame, GameAchievements> rebuilt = new EnumMap<>(Minigame.class);
+        for(final Map.Entry<Minigame, List<Achievement>> entry : grouped.entrySet()) {
+            final List<Achievement> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(Comparator.comparing(Achievement::getName));
+
+            int points = 0;
+            for(final Achievement achievement : sorted) {
+                points += achievement.getPoints();
             }
+
+            rebuilt.put(entry.getKey(), new GameAchievements(List.copyOf(entry.getValue()), List.copyOf(sorted), points));
         }
 
+        gameAchievements = Collections.unmodifiableMap(rebuilt);
         return gameAchievements;
     }
 
+    /**
+     * Get all achievements from a given game.
+     * @param game Game to get achievements from.
+     * @return Unmodifiable list of achievements in that game.
+     */
+    public List<Achievement> getAchievements(Minigame game) {
+        return getGameAchievements(game).achievements();
+    }
+
     /**
      * Gets the achievements of a game, sorted by alphabetical order.
      * @param game Game to get achievements of.
-     * @return Achievements of that game, sorted in alphabetical order.
+     * @return Unmodifiable list of achievements in that game, sorted in alphabetical order.
      */
     public List<Achievement> getSortedAchievements(Minigame game) {
-        List<Achievement> gameAchievements = getAchievements(game);
-        List<String> sorted_names = new ArrayList<>();
-        List<Achievement> sortedAchievements = new ArrayList<>();
+        return getGameAchievements(game).sorted();
+    }
+
+    /**
+     * Get the total achievement points that can be earned in a game.
+     * @param game Game to get the points of.
+     * @return Total points of every achievement in that game.
+     */
+    public int getTotalPoints(Minigame game) {
+        return getGameAchievements(game).points();
+    }
 
-        for(Achievement achievement : gameAchievements) {
-            sorted_names.add(achievement.getName());
+    /**
+     * Get the prebuilt achievement lists of a game, rebuilding them first if achievements changed.
+     * @param game Game to get achievements of.
+     * @return Achievements of that game, which are empty if it has none.
+     */
+    private GameAchievements getGameAchievements(Minigame game) {
+        Map<Minigame, GameAchievements> current = gameAchievements;
+        if(current == null) {
+            current = rebuildGameAchievements();
         }
 
-        sorted_names.sort(Comparator.naturalOrder());
+        return current.getOrDefault(game, GameAchievements.EMPTY);
+    }
 
-        for(String name : sorted_names) {
-            for(Achievement achievement : gameAchievements) {
-                if(achievement.getName().equals(name)) {
-                    sortedAchievements.add(achievement);
-                }
-            }
+    /**
+     * Get the writer used to save unlocked achievements.
+     * @return Achievement writer.
+     */
+    public AchievementWriter getAchievementWriter() {
+        return achievementWriter;
+    }
+
+    /**
+     * Get an achievement from its index.
+     * @param index Index of the achievement.
+     * @return Resulting achievement, or null if there is none with that index.
+     */
+    public synchronized Achievement getAchievement(final int index) {
+        if(index < 0 || index >= indexedAchievements.size()) {
+            return null;
         }
 
-        return sortedAchievements;
+        return indexedAchievements.get(index);
+    }
+
+    /**
+     * Get the revision of the achievement list, which changes every time an achievement is added or replaced.
+     * @return Current revision.
+     */
+    public int getRevision() {
+        return revision;
     }
 
     /**
@@ -168,11 +264,17 @@ public class AchievementManager {
      * @param id ID of the achievement.
      * @return Resulting achievement.
      */
-    public Achievement getAchievement(String id) {
-        if(achievements.containsKey(id)) {
-            return achievements.get(id);
-        }
+    public synchronized Achievement getAchievement(String id) {
+        return achievements.get(id);
+    }
 
-        return null;
+    /**
+     * The achievements of a single game.
+     * @param achievements Achievements in the order they were added.
+     * @param sorted Achievements sorted by name.
+     * @param points Total points of every achievement.
+     */
+    private record GameAchievements(List<Achievement> achievements, List<Achievement> sorted, int points) {
+        private static final GameAchievements EMPTY = new GameAchievements(List.of(), List.of(), 0);
     }
-}
\ No newline at end of file
+}
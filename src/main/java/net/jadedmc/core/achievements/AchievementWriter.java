@@ -0,0 +1,134 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.achievements;
+
+import net.jadedmc.core.JadedMCPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes unlocked achievements to MySQL in batches.
+ * Unlocks from every player are queued and saved together, along with their new achievement point totals.
+ */
+public class AchievementWriter {
+    private final JadedMCPlugin plugin;
+    private final Queue<Unlock> unlocks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates the writer and starts the flush task.
+     * @param plugin Instance of the plugin.
+     */
+    public AchievementWriter(@NotNull final JadedMCPlugin plugin) {
+        this.plugin = plugin;
+
+        // Writes unlocks every few seconds, as set in the config.
+        final long interval = Math.max(1, plugin.getConfigManager().getConfig().getLong("MySQL.flushInterval", 10));
+        plugin.getExecutorManager().scheduleRepeating(plugin.getExecutorManager().getDatabaseExecutor(), this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues an unlocked achievement to be saved.
+     * The player is flagged in Redis until it is, so a server they switch to does not load them without it.
+     * @param uuid UUID of the player who unlocked the achievement.
+     * @param achievementID ID of the achievement that was unlocked.
+     */
+    public void queue(@NotNull final UUID uuid, @NotNull final String achievementID) {
+        unlocks.add(new Unlock(uuid, achievementID));
+        plugin.getJadedPlayerManager().getUnsavedChanges().mark(uuid);
+    }
+
+    /**
+     * Writes all queued unlocks in a single transaction.
+     * Warning: Does so on whatever thread it is called from.
+     */
+    public void flush() {
+        final List<Unlock> batch = new ArrayList<>();
+
+        Unlock unlock;
+        while((unlock = unlocks.poll()) != null) {
+            batch.add(unlock);
+        }
+
+        if(batch.isEmpty()) {
+            return;
+        }
+
+        final Set<UUID> players = new LinkedHashSet<>();
+
+        try(Connection connection = plugin.getMySQL().borrowConnection()) {
+            connection.setAutoCommit(false);
+
+            try(PreparedStatement insertStatement = connection.prepareStatement("INSERT IGNORE INTO player_achievements (uuid,achievementID) VALUES (?,?)");
+                PreparedStatement pointsStatement = connection.prepareStatement("UPDATE player_info SET achievementPoints = (SELECT COALESCE(SUM(achievements_list.achievementPoints), 0) FROM player_achievements JOIN achievements_list ON achievements_list.id = player_achievements.achievementID WHERE player_achievements.uuid = ?) WHERE uuid = ?")) {
+
+                // Insert every unlock, ignoring ones that were already saved.
+                for(final Unlock queued : batch) {
+                    insertStatement.setString(1, queued.uuid().toString());
+                    insertStatement.setString(2, queued.achievementID());
+                    insertStatement.addBatch();
+                    players.add(queued.uuid());
+                }
+                insertStatement.executeBatch();
+
+                // Update the stored point totals of everyone who unlocked something.
+                for(final UUID uuid : players) {
+                    pointsStatement.setString(1, uuid.toString());
+                    pointsStatement.setString(2, uuid.toString());
+                    pointsStatement.addBatch();
+                }
+                pointsStatement.executeBatch();
+
+                connection.commit();
+            }
+            catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            }
+        }
+        catch (SQLException exception) {
+            // Try again next flush.
+            unlocks.addAll(batch);
+            exception.printStackTrace();
+            return;
+        }
+
+        // Cached profiles of these players no longer have all their achievements.
+        plugin.getJadedPlayerManager().getProfileCache().invalidate(players);
+    }
+
+    /**
+     * An achievement unlock waiting to be saved.
+     * @param uuid UUID of the player.
+     * @param achievementID ID of the achievement.
+     */
+    private record Unlock(UUID uuid, String achievementID) {}
+}
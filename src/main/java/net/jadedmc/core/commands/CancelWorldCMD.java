@@ -35,6 +35,8 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
 
 public class CancelWorldCMD extends AbstractCommand {
     private final JadedMCPlugin plugin;
@@ -63,13 +65,19 @@ public class CancelWorldCMD extends AbstractCommand {
 
         // Gets the world folder before stabbing the world.
         final File worldFolder = world.getWorldFolder();
+        final String name = world.getName();
 
         // Kill the world.
         Bukkit.unloadWorld(world, false);
 
         // Hides the body.
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            FileUtils.deleteDirectory(worldFolder);
+        plugin.getExecutorManager().getFileExecutor().tryExecute(() -> {
+            try {
+                plugin.getLogger().info("Deleted world " + name + " (" + FileUtils.delete(worldFolder) + ").");
+            }
+            catch (IOException exception) {
+                plugin.getLogger().log(Level.WARNING, "Could not fully delete world " + name + ".", exception);
+            }
         });
     }
 }
\ No newline at end of file
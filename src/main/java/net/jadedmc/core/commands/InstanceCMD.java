@@ -27,6 +27,8 @@ package net.jadedmc.core.commands;
 
 import net.jadedmc.core.JadedAPI;
 import net.jadedmc.core.JadedMCPlugin;
+import net.jadedmc.core.database.ConnectionPool;
+import net.jadedmc.core.executors.IOExecutor;
 import net.jadedmc.core.networking.InstanceStatus;
 import net.jadedmc.core.networking.InstanceType;
 import net.jadedmc.jadedchat.JadedChat;
@@ -59,6 +61,21 @@ public class InstanceCMD extends AbstractCommand {
                 ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>Free: " + Runtime.getRuntime().freeMemory());
             }
 
+            case "database" -> {
+                final ConnectionPool pool = plugin.getMySQL().getPool();
+                ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>Active Connections: " + pool.getActiveConnections() + "/" + pool.getMaximumPoolSize());
+                ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>Idle Connections: " + pool.getIdleConnections());
+                ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>Waiting Threads: " + pool.getWaitingThreads());
+                ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>Average Wait: " + String.format("%.2f", pool.getAverageWaitTime()) + "ms (Max: " + String.format("%.2f", pool.getMaxWaitTime()) + "ms)");
+                ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>Total Borrows: " + pool.getBorrowCount());
+            }
+
+            case "executors" -> {
+                for(final IOExecutor executor : plugin.getExecutorManager().getExecutors()) {
+                    ChatUtils.chat(sender, "<green><bold>Instance</bold> <dark_gray>» <green>" + executor.getName() + (executor.isVirtual() ? " (virtual)" : "") + ": " + executor.getActiveCount() + " active, " + executor.getQueueSize() + "/" + executor.getQueueCapacity() + " queued, " + executor.getCompletedCount() + " completed, " + executor.getRejectedCount() + " rejected");
+                }
+            }
+
             case "check" -> {
                 boolean passed = true;
 
@@ -55,7 +55,7 @@ public class PlayersCMD extends AbstractCommand {
         public PlayersGUI(JadedMCPlugin plugin) {
             super(54, "Online Players");
 
-            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            plugin.getExecutorManager().getRedisExecutor().tryExecute(() -> {
                 final PlayerMap<NetworkPlayer> players = JadedAPI.getNetworkPlayers();
 
                 plugin.getServer().getScheduler().runTask(plugin, () -> {
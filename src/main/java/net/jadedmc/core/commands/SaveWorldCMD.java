@@ -26,6 +26,7 @@
 package net.jadedmc.core.commands;
 
 import net.jadedmc.core.JadedMCPlugin;
+import net.jadedmc.core.worlds.WorldSettings;
 import net.jadedmc.utils.chat.ChatUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
@@ -63,11 +64,37 @@ public class SaveWorldCMD extends AbstractCommand {
         // Get important data before killing the world.
         final File worldFolder = world.getWorldFolder();
         final String name = world.getName();
+        final WorldSettings settings = WorldSettings.fromWorld(world);
 
         // Kill the world.
-        Bukkit.unloadWorld(world, true);
+        ChatUtils.chat(player, "&a&lSave &8» &aUnloading " + name + "...");
+        if(!Bukkit.unloadWorld(world, true)) {
+            ChatUtils.chat(player, "&c&lError &8» &cCould not unload " + name + "! It has not been saved.");
+            return;
+        }
 
         // Move the corpse to mongodb.
-        plugin.getWorldManager().saveWorld(worldFolder, name);
+        plugin.getWorldManager().saveWorld(worldFolder, name, settings, message -> report(player, "&a&lSave &8» &a" + message)).whenComplete((uploaded, exception) -> {
+            if(exception != null) {
+                final Throwable cause = exception.getCause() == null ? exception : exception.getCause();
+                report(player, "&c&lError &8» &cCould not save " + name + ": " + cause.getMessage() + ". The world folder has been kept.");
+                return;
+            }
+
+            report(player, "&a&lSave &8» &a" + name + " has been saved! (" + (uploaded / 1024) + " KB uploaded)");
+        });
+    }
+
+    /**
+     * Sends a progress message to a player from the main thread.
+     * @param player Player to send the message to.
+     * @param message Message to send.
+     */
+    private void report(@NotNull final Player player, @NotNull final String message) {
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if(player.isOnline()) {
+                ChatUtils.chat(player, message);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,497 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.database;
+
+import net.jadedmc.core.JadedMCPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * A bounded pool of MySQL connections.
+ * Connections given out by the pool must be closed, which returns them to the pool instead of closing the socket.
+ */
+public class ConnectionPool {
+    private final JadedMCPlugin plugin;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minimumIdle;
+    private final int maximumPoolSize;
+    private final long connectionTimeout;
+    private final long idleTimeout;
+    private final long leakDetectionThreshold;
+    private final int validationTimeout;
+    private final long aliveBypassWindow;
+
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Collection<Lease> activeLeases = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates the connection pool, using the settings in the "MySQL.pool" config section.
+     * @param plugin Instance of the plugin.
+     * @param url JDBC url to connect to.
+     * @param username Username to connect with.
+     * @param password Password to connect with.
+     */
+    public ConnectionPool(@NotNull final JadedMCPlugin plugin, @NotNull final String url, final String username, final String password) {
+        this(plugin, url, username, password, plugin.getConfigManager().getConfig().getInt("MySQL.pool.maximumPoolSize", 10), plugin.getConfigManager().getConfig().getInt("MySQL.pool.minimumIdle", 2));
+    }
+
+    /**
+     * Creates a connection pool with its own size, using the rest of the settings in the "MySQL.pool" config section.
+     * @param plugin Instance of the plugin.
+     * @param url JDBC url to connect to.
+     * @param username Username to connect with.
+     * @param password Password to connect with.
+     * @param maximumPoolSize Most connections that can be open at once.
+     * @param minimumIdle Connections kept open even when nothing is using them.
+     */
+    public ConnectionPool(@NotNull final JadedMCPlugin plugin, @NotNull final String url, final String username, final String password, final int maximumPoolSize, final int minimumIdle) {
+        this.plugin = plugin;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+
+        this.maximumPoolSize = Math.max(1, maximumPoolSize);
+        this.minimumIdle = Math.min(this.maximumPoolSize, Math.max(0, minimumIdle));
+        this.connectionTimeout = plugin.getConfigManager().getConfig().getLong("MySQL.pool.connectionTimeout", 5000);
+        this.idleTimeout = plugin.getConfigManager().getConfig().getLong("MySQL.pool.idleTimeout", 600000);
+        this.leakDetectionThreshold = plugin.getConfigManager().getConfig().getLong("MySQL.pool.leakDetectionThreshold", 30000);
+        this.validationTimeout = Math.max(1, plugin.getConfigManager().getConfig().getInt("MySQL.pool.validationTimeout", 3));
+        this.aliveBypassWindow = Math.max(0, plugin.getConfigManager().getConfig().getLong("MySQL.pool.aliveBypassWindow", 3000));
+        this.permits = new Semaphore(maximumPoolSize, true);
+
+        // Opens the minimum number of idle connections.
+        fillPool();
+
+        // Evicts idle connections and looks for leaks every 5 seconds.
+        plugin.getExecutorManager().scheduleRepeating(plugin.getExecutorManager().getDatabaseExecutor(), this::housekeeping, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if needed.
+     * Blocks for up to the configured connection timeout if the pool is exhausted.
+     * The returned connection must be closed to return it to the pool.
+     * @return Pooled connection.
+     * @throws SQLException If a connection could not be obtained.
+     */
+    public Connection getConnection() throws SQLException {
+        if(closed) {
+            throw new SQLException("The MySQL connection pool has been closed.");
+        }
+
+        final long start = System.nanoTime();
+
+        // Wait for a free slot in the pool.
+        waitingThreads.incrementAndGet();
+        try {
+            if(!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + connectionTimeout + "ms waiting for a MySQL connection (" + activeLeases.size() + " active, " + waitingThreads.get() + " waiting).");
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a MySQL connection.", exception);
+        }
+        finally {
+            waitingThreads.decrementAndGet();
+        }
+
+        try {
+            // Reuse the most recently returned connection that is still valid.
+            // Connections used within the bypass window are trusted, to save a round trip on busy connections.
+            PooledConnection pooledConnection;
+            while((pooledConnection = idleConnections.pollFirst()) != null) {
+                if(System.currentTimeMillis() - pooledConnection.lastUsed < aliveBypassWindow || pooledConnection.isValid()) {
+                    break;
+                }
+
+                pooledConnection.closePhysical();
+            }
+
+            // Otherwise, open a new one.
+            if(pooledConnection == null) {
+                pooledConnection = openPhysical();
+            }
+
+            final long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            final Lease lease = new Lease(pooledConnection);
+            activeLeases.add(lease);
+            return lease.getProxy();
+        }
+        catch (SQLException | RuntimeException exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones.
+     * Connections currently in use are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+
+        PooledConnection pooledConnection;
+        while((pooledConnection = idleConnections.pollFirst()) != null) {
+            pooledConnection.closePhysical();
+        }
+    }
+
+    /**
+     * Get the number of connections currently borrowed from the pool.
+     * @return Active connections.
+     */
+    public int getActiveConnections() {
+        return activeLeases.size();
+    }
+
+    /**
+     * Get the average time (in milliseconds) spent waiting to borrow a connection.
+     * @return Average wait time in milliseconds.
+     */
+    public double getAverageWaitTime() {
+        final long borrows = borrowCount.sum();
+
+        if(borrows == 0) {
+            return 0;
+        }
+
+        return totalWaitNanos.sum() / (double) borrows / 1_000_000.0;
+    }
+
+    /**
+     * Get the number of connections that have been borrowed since the pool was created.
+     * @return Total borrows.
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * Get the number of open connections currently waiting in the pool.
+     * @return Idle connections.
+     */
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Get the maximum number of connections the pool can hold.
+     * @return Maximum pool size.
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * Get the longest time (in milliseconds) a thread has spent waiting to borrow a connection.
+     * @return Maximum wait time in milliseconds.
+     */
+    public double getMaxWaitTime() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Get the number of open connections, both active and idle.
+     * @return Total connections.
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * Get the number of threads currently waiting for a connection.
+     * @return Waiting threads.
+     */
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    /**
+     * Opens new connections until the pool has its minimum number of idle connections.
+     */
+    private void fillPool() {
+        while(!closed && totalConnections.get() < minimumIdle && totalConnections.get() < maximumPoolSize) {
+            try {
+                idleConnections.offerLast(openPhysical());
+            }
+            catch (SQLException exception) {
+                plugin.getLogger().log(Level.WARNING, "Could not open a MySQL connection.", exception);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evicts connections that have been idle too long, and reports connections that have been borrowed too long.
+     */
+    private void housekeeping() {
+        if(closed) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+
+        // Close connections that have not been used recently, keeping the minimum around.
+        for(final PooledConnection pooledConnection : idleConnections) {
+            if(now - pooledConnection.lastUsed < idleTimeout) {
+                continue;
+            }
+
+            // Make sure nobody borrowed it while we were looking.
+            if(!idleConnections.remove(pooledConnection)) {
+                continue;
+            }
+
+            if(totalConnections.get() > minimumIdle || !pooledConnection.isValid()) {
+                pooledConnection.closePhysical();
+                continue;
+            }
+
+            // Kept connections get checked, which also prevents MySQL from timing them out.
+            pooledConnection.lastUsed = now;
+            idleConnections.offerLast(pooledConnection);
+        }
+
+        fillPool();
+
+        // Report connections that were never returned.
+        if(leakDetectionThreshold <= 0) {
+            return;
+        }
+
+        for(final Lease lease : activeLeases) {
+            if(lease.leakReported || now - lease.borrowedAt < leakDetectionThreshold) {
+                continue;
+            }
+
+            lease.leakReported = true;
+            plugin.getLogger().log(Level.WARNING, "Possible MySQL connection leak: a connection has been borrowed for " + (now - lease.borrowedAt) + "ms without being closed.", lease.borrowTrace);
+        }
+    }
+
+    /**
+     * Opens a new physical connection to MySQL.
+     * @return New pooled connection.
+     * @throws SQLException If the connection could not be opened.
+     */
+    private PooledConnection openPhysical() throws SQLException {
+        final PooledConnection pooledConnection = new PooledConnection(DriverManager.getConnection(url, username, password));
+        totalConnections.incrementAndGet();
+        return pooledConnection;
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.
+     * @param lease Lease of the connection being returned.
+     */
+    private void release(@NotNull final Lease lease) {
+        activeLeases.remove(lease);
+        lease.closeStatements();
+
+        final PooledConnection pooledConnection = lease.pooledConnection;
+        try {
+            // Undo anything left over from an unfinished transaction.
+            if(!pooledConnection.connection.getAutoCommit()) {
+                pooledConnection.connection.rollback();
+                pooledConnection.connection.setAutoCommit(true);
+            }
+
+            pooledConnection.lastUsed = System.currentTimeMillis();
+
+            if(closed) {
+                pooledConnection.closePhysical();
+            }
+            else {
+                // Returned to the front, so busy periods reuse the same few connections and the rest can idle out.
+                idleConnections.offerFirst(pooledConnection);
+            }
+        }
+        catch (SQLException exception) {
+            pooledConnection.closePhysical();
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * A physical connection to MySQL owned by the pool.
+     */
+    private final class PooledConnection {
+        private final Connection connection;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(@NotNull final Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Checks if the connection can still be used.
+         * @return Whether the connection is still valid.
+         */
+        private boolean isValid() {
+            try {
+                return connection.isValid(validationTimeout);
+            }
+            catch (SQLException exception) {
+                return false;
+            }
+        }
+
+        /**
+         * Closes the underlying connection and removes it from the pool count.
+         */
+        private void closePhysical() {
+            totalConnections.decrementAndGet();
+
+            try {
+                connection.close();
+            }
+            catch (SQLException exception) {
+                // The connection is being thrown away anyway.
+            }
+        }
+    }
+
+    /**
+     * A single borrow of a pooled connection.
+     * Hands out a proxy, so a stale reference cannot be used once the connection is returned.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooledConnection;
+        private final Connection proxy;
+        private final Collection<Statement> statements = ConcurrentHashMap.newKeySet();
+        private final long borrowedAt = System.currentTimeMillis();
+        private final Exception borrowTrace;
+        private final AtomicBoolean returned = new AtomicBoolean(false);
+        private volatile boolean leakReported = false;
+
+        private Lease(@NotNull final PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+
+            // Only pay for the stack trace when it could be reported.
+            this.borrowTrace = leakDetectionThreshold > 0 ? new Exception("Connection borrowed here") : null;
+        }
+
+        private Connection getProxy() {
+            return proxy;
+        }
+
+        /**
+         * Closes every statement created through this lease.
+         */
+        private void closeStatements() {
+            for(final Statement statement : statements) {
+                try {
+                    statement.close();
+                }
+                catch (SQLException exception) {
+                    // The statement is being thrown away anyway.
+                }
+            }
+
+            statements.clear();
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    // Only the first close returns the connection, even if several threads close it at once.
+                    if(returned.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if(returned.get()) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pooledConnection.connection + "]";
+                }
+            }
+
+            if(returned.get()) {
+                throw new SQLException("This connection has already been returned to the pool.");
+            }
+
+            try {
+                final Object result = method.invoke(pooledConnection.connection, args);
+
+                // Track statements so they get closed when the connection is returned.
+                if(result instanceof final Statement statement) {
+                    statements.add(statement);
+                }
+
+                return result;
+            }
+            catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+    }
+}
@@ -30,14 +30,22 @@ import net.jadedmc.core.JadedMCPlugin;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages the connection process to MySQL.
+ * Connections are handed out by a {@link ConnectionPool} through borrowConnection, so they must be closed once a query is finished.
  */
 public class MySQL {
     private final JadedMCPlugin plugin;
-    private Connection connection;
+    private ConnectionPool pool;
+    private ConnectionPool profilePool;
+    private Connection sharedConnection;
+    private final ReentrantLock sharedConnectionLock = new ReentrantLock();
+    private final String url;
     private final String host;
     private final String database;
     private final String username;
@@ -55,14 +63,63 @@ public class MySQL {
         username = plugin.getConfigManager().getConfig().getString("MySQL.username");
         password = plugin.getConfigManager().getConfig().getString("MySQL.password");
         port = plugin.getConfigManager().getConfig().getInt("MySQL.port");
+        url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&characterEncoding=utf8&rewriteBatchedStatements=true";
     }
 
     /**
-     * Get the connection.
+     * Borrows a connection from the connection pool.
+     * The connection must be closed when finished, preferably with try-with-resources, to return it to the pool.
      * @return Connection
+     * @throws SQLException If no connection could be obtained.
      */
+    public Connection borrowConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    /**
+     * Borrows a connection that can run several statements in one query, used to load player profiles in one round trip.
+     * These come from a small pool of their own, so no other connection, including the one other plugins get, allows multiple statements.
+     * The connection must be closed when finished, preferably with try-with-resources, to return it to the pool.
+     * @return Connection
+     * @throws SQLException If no connection could be obtained.
+     */
+    public Connection borrowProfileConnection() throws SQLException {
+        return profilePool.getConnection();
+    }
+
+    /**
+     * Get the single shared connection, for plugins written before the connection pool.
+     * It is separate from the pool, so holding it never blocks pooled queries. It must not be closed,
+     * but is reopened if it is.
+     * Guarded by a ReentrantLock instead of synchronized, so a virtual thread waiting on the connect does not pin its carrier.
+     * @return Connection
+     * @deprecated Use borrowConnection, and close the connection when finished.
+     */
+    @Deprecated
     public Connection getConnection() {
-        return connection;
+        sharedConnectionLock.lock();
+        try {
+            if(sharedConnection == null || sharedConnection.isClosed()) {
+                sharedConnection = DriverManager.getConnection(url + "&autoReconnect=true", username, password);
+            }
+
+            return sharedConnection;
+        }
+        catch (SQLException exception) {
+            exception.printStackTrace();
+            return sharedConnection;
+        }
+        finally {
+            sharedConnectionLock.unlock();
+        }
+    }
+
+    /**
+     * Get the connection pool, used to view connection statistics.
+     * @return Connection pool.
+     */
+    public ConnectionPool getPool() {
+        return pool;
     }
 
     /**
@@ -70,92 +127,169 @@ public class MySQL {
      * @return Connected
      */
     private boolean isConnected() {
-        return (connection != null);
+        return (pool != null);
+    }
+
+    /**
+     * Closes all connections in the pool.
+     */
+    public void closeConnection() {
+        if(isConnected()) {
+            pool.close();
+            profilePool.close();
+        }
+
+        sharedConnectionLock.lock();
+        try {
+            if(sharedConnection != null) {
+                sharedConnection.close();
+            }
+        }
+        catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        finally {
+            sharedConnectionLock.unlock();
+        }
     }
 
     /**
-     * Open a MySQL Connection
+     * Open the MySQL connection pool.
      */
     public void openConnection() {
         try {
-            if (connection != null && !connection.isClosed()) {
+            if(isConnected()) {
                 return;
             }
 
-            synchronized(JadedMCPlugin.class) {
-                if (connection != null && !connection.isClosed()) {
-                    return;
+            Class.forName("com.mysql.jdbc.Driver");
+            pool = new ConnectionPool(plugin, url, username, password);
+
+            final int profileConnections = plugin.getConfigManager().getConfig().getInt("MySQL.pool.profileConnections", 4);
+            profilePool = new ConnectionPool(plugin, url + "&allowMultiQueries=true", username, password, profileConnections, 1);
+
+            try(Connection connection = borrowConnection()) {
+                {
+                    PreparedStatement api_keys = connection.prepareStatement("CREATE TABLE IF NOT EXISTS api_keys (" +
+                            "uuid VARCHAR(36)," +
+                            "apiKey VARCHAR(36)," +
+                            "PRIMARY KEY(uuid, apiKey)" +
+                            ");");
+                    api_keys.execute();
                 }
-                Class.forName("com.mysql.jdbc.Driver");
-                connection = DriverManager.getConnection("jdbc:mysql://" + host + ":" + port + "/" + database + "?autoReconnect=true&useSSL=false&characterEncoding=utf8", username, password);
-            }
 
-            // Prevents losing connection to MySQL.
-            plugin.getServer().getScheduler().scheduleAsyncRepeatingTask(plugin, ()-> {
-                try {
-                    connection.isValid(0);
+                {
+                    PreparedStatement staff_settings = connection.prepareStatement("CREATE TABLE IF NOT EXISTS staff_settings (" +
+                            "uuid VARCHAR(36)," +
+                            "vanish BOOLEAN DEFAULT FALSE," +
+                            "commandSpy BOOLEAN DEFAULT FALSE," +
+                            "PRIMARY KEY(uuid)" +
+                            ");");
+                    staff_settings.execute();
                 }
-                catch (SQLException exception) {
-                    exception.printStackTrace();
+
+                {
+                    PreparedStatement achievements_list = connection.prepareStatement("CREATE TABLE IF NOT EXISTS achievements_list (" +
+                            "id VARCHAR(36)," +
+                            "mode VARCHAR(36)," +
+                            "name VARCHAR(36)," +
+                            "description VARCHAR(128)," +
+                            "achievementPoints INT DEFAULT 0, " +
+                            "rewards VARCHAR(256)," +
+                            "PRIMARY KEY(id)" +
+                            ");");
+                    achievements_list.execute();
                 }
-            }, 504000, 504000);
 
-            {
-                PreparedStatement api_keys = connection.prepareStatement("CREATE TABLE IF NOT EXISTS api_keys (" +
-                        "uuid VARCHAR(36)," +
-                        "apiKey VARCHAR(36)," +
-                        "PRIMARY KEY(uuid, apiKey)" +
-                        ");");
-                api_keys.execute();
-            }
+                {
+                    PreparedStatement player_achievements = connection.prepareStatement("CREATE TABLE IF NOT EXISTS player_achievements (" +
+                            "uuid VARCHAR(36)," +
+                            "achievementID VARCHAR(36), " +
+                            "time TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                            "PRIMARY KEY(uuid,achievementID)" +
+                            ");");
+                    player_achievements.execute();
+                }
 
-            {
-                PreparedStatement staff_settings = connection.prepareStatement("CREATE TABLE IF NOT EXISTS staff_settings (" +
+                PreparedStatement player_info = connection.prepareStatement("CREATE TABLE IF NOT EXISTS player_info (" +
                         "uuid VARCHAR(36)," +
-                        "vanish BOOLEAN DEFAULT FALSE," +
-                        "commandSpy BOOLEAN DEFAULT FALSE," +
+                        "username VARCHAR(16)," +
+                        "ip VARCHAR(36)," +
+                        "level INT DEFAULT 1," +
+                        "experience INT DEFAULT 0," +
+                        "firstOnline TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                        "lastOnline TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                        "achievementPoints INT DEFAULT 0," +
                         "PRIMARY KEY(uuid)" +
                         ");");
-                staff_settings.execute();
-            }
+                player_info.execute();
 
-            {
-                PreparedStatement achievements_list = connection.prepareStatement("CREATE TABLE IF NOT EXISTS achievements_list (" +
-                        "id VARCHAR(36)," +
-                        "mode VARCHAR(36)," +
-                        "name VARCHAR(36)," +
-                        "description VARCHAR(128)," +
-                        "achievementPoints INT DEFAULT 0, " +
-                        "rewards VARCHAR(256)," +
-                        "PRIMARY KEY(id)" +
-                        ");");
-                achievements_list.execute();
+                migratePlayerInfo(connection);
             }
+        }
+        catch(SQLException | ClassNotFoundException exception) {
+            exception.printStackTrace();
+        }
+    }
 
-            {
-                PreparedStatement player_achievements = connection.prepareStatement("CREATE TABLE IF NOT EXISTS player_achievements (" +
-                        "uuid VARCHAR(36)," +
-                        "achievementID VARCHAR(36), " +
-                        "time TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                        "PRIMARY KEY(uuid,achievementID)" +
-                        ");");
-                player_achievements.execute();
+    /**
+     * Adds the primary key on uuid to player_info tables created before it had one.
+     * Duplicate rows are dropped, keeping the one with the most progress. The original table is kept as player_info_backup.
+     * Uses a named lock, so servers starting at the same time do not migrate at once.
+     * @param connection Connection to migrate with.
+     * @throws SQLException If the migration failed.
+     */
+    private void migratePlayerInfo(final Connection connection) throws SQLException {
+        try(PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK('jadedcore_player_info', 60)")) {
+            lock.executeQuery().close();
+        }
+
+        try {
+            try(PreparedStatement check = connection.prepareStatement("SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'player_info' AND COLUMN_NAME = 'uuid' AND NON_UNIQUE = 0");
+                ResultSet resultSet = check.executeQuery()) {
+                if(resultSet.next() && resultSet.getInt(1) > 0) {
+                    return;
+                }
             }
 
-            PreparedStatement player_info = connection.prepareStatement("CREATE TABLE IF NOT EXISTS player_info (" +
-                    "uuid VARCHAR(36)," +
-                    "username VARCHAR(16)," +
-                    "ip VARCHAR(36)," +
-                    "level INT DEFAULT 1," +
-                    "experience INT DEFAULT 0," +
-                    "firstOnline TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "lastOnline TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "achievementPoints INT DEFAULT 0" +
-                    ");");
-            player_info.execute();
+            plugin.getLogger().info("Adding a primary key to player_info. The old table will be kept as player_info_backup.");
+
+            try(Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS player_info_migration");
+                statement.execute("CREATE TABLE player_info_migration LIKE player_info");
+                statement.execute("ALTER TABLE player_info_migration MODIFY uuid VARCHAR(36) NOT NULL, ADD PRIMARY KEY(uuid)");
+                statement.execute("INSERT IGNORE INTO player_info_migration SELECT * FROM player_info WHERE uuid IS NOT NULL ORDER BY level DESC, experience DESC, firstOnline ASC");
+
+                // Only swap the tables if every player made it into the new one.
+                final long players = count(statement, "SELECT COUNT(DISTINCT uuid) FROM player_info WHERE uuid IS NOT NULL");
+                final long migrated = count(statement, "SELECT COUNT(*) FROM player_info_migration");
+                if(migrated != players) {
+                    plugin.getLogger().severe("Not adding the primary key to player_info: " + migrated + " rows were copied, but there are " + players + " players. player_info was left unchanged.");
+                    statement.execute("DROP TABLE IF EXISTS player_info_migration");
+                    return;
+                }
+
+                statement.execute("RENAME TABLE player_info TO player_info_backup, player_info_migration TO player_info");
+                plugin.getLogger().info("Added a primary key to player_info (" + migrated + " players).");
+            }
         }
-        catch(SQLException | ClassNotFoundException exception) {
-            exception.printStackTrace();
+        finally {
+            try(PreparedStatement unlock = connection.prepareStatement("SELECT RELEASE_LOCK('jadedcore_player_info')")) {
+                unlock.executeQuery().close();
+            }
+        }
+    }
+
+    /**
+     * Runs a query that returns a single number.
+     * @param statement Statement to run it with.
+     * @param query Query to run.
+     * @return The number returned.
+     * @throws SQLException If the query failed.
+     */
+    private long count(final Statement statement, final String query) throws SQLException {
+        try(ResultSet resultSet = statement.executeQuery(query)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
         }
     }
 }
\ No newline at end of file
@@ -32,8 +32,12 @@ import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
 
-import java.util.Set;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Manages the connection process to Redis.
@@ -73,7 +77,7 @@ public class Redis {
     }
 
     public void publishAsync(@NotNull final String channel, @NotNull final String message) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getExecutorManager().getRedisExecutor().tryExecute(() -> {
             publish(channel, message);
         });
     }
@@ -84,6 +88,18 @@ public class Redis {
         }
     }
 
+    /**
+     * Sets a key that expires after a number of seconds.
+     * @param key Key to set.
+     * @param seconds Seconds until the key expires.
+     * @param value Value to set.
+     */
+    public void setex(@NotNull final String key, final long seconds, @NotNull final String value) {
+        try(Jedis jedis = jedisPool.getResource()) {
+            jedis.setex(key, seconds, value);
+        }
+    }
+
     public void sadd(String key, String value) {
         try(Jedis jedis = jedisPool.getResource()) {
             jedis.sadd(key, value);
@@ -96,10 +112,75 @@ public class Redis {
         }
     }
 
+    /**
+     * Runs a Lua script, which Redis executes atomically.
+     * @param script Script to run.
+     * @param keys Keys the script uses.
+     * @param args Other arguments of the script.
+     * @return Result of the script.
+     */
+    public Object eval(@NotNull final String script, @NotNull final List<String> keys, @NotNull final List<String> args) {
+        try(Jedis jedis = jedisPool.getResource()) {
+            return jedis.eval(script, keys, args);
+        }
+    }
+
+    /**
+     * Get all keys matching a pattern.
+     * Uses SCAN instead of KEYS, so Redis is not blocked while the keyspace is searched.
+     * @param pattern Pattern to match.
+     * @return All matching keys.
+     */
     public Set<String> keys(@NotNull final String pattern) {
+        final Set<String> keys = new HashSet<>();
+
         try(Jedis jedis = jedisPool.getResource()) {
-            return jedis.keys(pattern);
+            final ScanParams params = new ScanParams().match(pattern).count(1000);
+            String cursor = ScanParams.SCAN_POINTER_START;
+
+            do {
+                final ScanResult<String> result = jedis.scan(cursor, params);
+                keys.addAll(result.getResult());
+                cursor = result.getCursor();
+            }
+            while(!cursor.equals(ScanParams.SCAN_POINTER_START));
         }
+
+        return keys;
+    }
+
+    /**
+     * Get the values of all keys matching a pattern.
+     * Each page of SCAN results is fetched with a single MGET.
+     * @param pattern Pattern to match.
+     * @return Values of all matching keys.
+     */
+    public List<String> values(@NotNull final String pattern) {
+        final List<String> values = new ArrayList<>();
+
+        try(Jedis jedis = jedisPool.getResource()) {
+            final ScanParams params = new ScanParams().match(pattern).count(1000);
+            String cursor = ScanParams.SCAN_POINTER_START;
+
+            do {
+                final ScanResult<String> result = jedis.scan(cursor, params);
+                cursor = result.getCursor();
+
+                if(result.getResult().isEmpty()) {
+                    continue;
+                }
+
+                // Keys can expire between the SCAN and the MGET.
+                for(final String value : jedis.mget(result.getResult().toArray(new String[0]))) {
+                    if(value != null) {
+                        values.add(value);
+                    }
+                }
+            }
+            while(!cursor.equals(ScanParams.SCAN_POINTER_START));
+        }
+
+        return values;
     }
 
     public String get(@NotNull final String key) {
@@ -108,6 +189,45 @@ public class Redis {
         }
     }
 
+    /**
+     * Get the values of multiple keys in a single round trip.
+     * @param keys Keys to get.
+     * @return Values in the same order as the keys, with null for keys that do not exist.
+     */
+    public List<String> mget(@NotNull final Collection<String> keys) {
+        if(keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try(Jedis jedis = jedisPool.getResource()) {
+            return jedis.mget(keys.toArray(new String[0]));
+        }
+    }
+
+    public void hset(@NotNull final String key, @NotNull final String field, @NotNull final String value) {
+        try(Jedis jedis = jedisPool.getResource()) {
+            jedis.hset(key, field, value);
+        }
+    }
+
+    public void hdel(@NotNull final String key, @NotNull final String field) {
+        try(Jedis jedis = jedisPool.getResource()) {
+            jedis.hdel(key, field);
+        }
+    }
+
+    public String hget(@NotNull final String key, @NotNull final String field) {
+        try(Jedis jedis = jedisPool.getResource()) {
+            return jedis.hget(key, field);
+        }
+    }
+
+    public Map<String, String> hgetAll(@NotNull final String key) {
+        try(Jedis jedis = jedisPool.getResource()) {
+            return jedis.hgetAll(key);
+        }
+    }
+
     public void subscribe() {
         new Thread("Redis Subscriber") {
             @Override
@@ -152,4 +272,33 @@ public class Redis {
             }
         }.start();
     }
-}
\ No newline at end of file
+
+    /**
+     * Subscribes to channels with a custom listener, which handles messages on the subscriber thread instead of the main thread.
+     * Resubscribes with a new listener if the connection is lost.
+     * @param listener Creates the listener to subscribe with.
+     * @param channels Channels to subscribe to.
+     */
+    public void subscribe(@NotNull final Supplier<JedisPubSub> listener, @NotNull final String... channels) {
+        final Thread thread = new Thread(() -> {
+            while(plugin.isEnabled()) {
+                try (Jedis jedis = jedisPool.getResource()) {
+                    jedis.subscribe(listener.get(), channels);
+                }
+                catch (Exception exception) {
+                    plugin.getLogger().log(Level.WARNING, "Lost Redis subscription to " + String.join(", ", channels) + ". Retrying in 5 seconds.", exception);
+                }
+
+                try {
+                    Thread.sleep(5000);
+                }
+                catch (InterruptedException exception) {
+                    return;
+                }
+            }
+        }, "Redis Subscriber");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
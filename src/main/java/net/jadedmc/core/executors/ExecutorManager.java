@@ -0,0 +1,178 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.executors;
+
+import net.jadedmc.core.JadedMCPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Manages the thread pools used for blocking I/O.
+ * Database, Redis, and file work each get their own pool, so they never run on the common ForkJoinPool
+ * and cannot starve each other or other plugins.
+ * If "Executors.virtualThreads" is enabled, each task runs on its own virtual thread instead.
+ * Repeating tasks are timed by a single scheduler thread, which only hands them to these executors.
+ */
+public class ExecutorManager {
+    private final JadedMCPlugin plugin;
+    private final ScheduledExecutorService scheduler;
+    private final IOExecutor database;
+    private final IOExecutor redis;
+    private final IOExecutor files;
+
+    /**
+     * Creates the executors, using the sizes in the "Executors" config section.
+     * @param plugin Instance of the plugin.
+     */
+    public ExecutorManager(@NotNull final JadedMCPlugin plugin) {
+        this.plugin = plugin;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "JadedCore Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final boolean virtual = plugin.getConfigManager().getConfig().getBoolean("Executors.virtualThreads", false);
+
+        database = createExecutor(plugin, "Database", "database", 8, 1000, virtual);
+        redis = createExecutor(plugin, "Redis", "redis", 4, 1000, virtual);
+        files = createExecutor(plugin, "Files", "files", 4, 100, virtual);
+
+        if(!virtual) {
+            return;
+        }
+
+        // MySQL Connector/J 8 holds monitors while talking to the server, which pins a virtual thread to its carrier.
+        // Only connections borrowed from the pool can be in the driver at once, so that caps the pinned carriers.
+        // Waiting for a connection, Jedis, and the MongoDB driver all use java.util.concurrent locks, which do not pin.
+        final int poolSize = plugin.getConfigManager().getConfig().getInt("MySQL.pool.maximumPoolSize", 10) + plugin.getConfigManager().getConfig().getInt("MySQL.pool.profileConnections", 4);
+        final int carriers = Runtime.getRuntime().availableProcessors();
+        if(poolSize > carriers) {
+            plugin.getLogger().warning("Virtual threads are enabled, but MySQL.pool.maximumPoolSize and MySQL.pool.profileConnections (" + poolSize + " together) are above the number of CPU cores (" + carriers + "). Queries may pin every carrier thread.");
+        }
+    }
+
+    /**
+     * Get the executor used for MySQL queries.
+     * @return Database executor.
+     */
+    public IOExecutor getDatabaseExecutor() {
+        return database;
+    }
+
+    /**
+     * Get the executor used for file and MongoDB GridFS transfers.
+     * @return File executor.
+     */
+    public IOExecutor getFileExecutor() {
+        return files;
+    }
+
+    /**
+     * Get the executor used for Redis commands.
+     * @return Redis executor.
+     */
+    public IOExecutor getRedisExecutor() {
+        return redis;
+    }
+
+    /**
+     * Runs a task on an executor at a fixed rate, instead of on the Bukkit async scheduler.
+     * A run is skipped if the last one is still going, so a slow task cannot fill the executor's queue.
+     * @param executor Executor to run the task on.
+     * @param task Task to run.
+     * @param delay Time before the first run.
+     * @param period Time between runs.
+     * @param unit Unit of the delay and period.
+     */
+    public void scheduleRepeating(@NotNull final IOExecutor executor, @NotNull final Runnable task, final long delay, final long period, @NotNull final TimeUnit unit) {
+        final AtomicBoolean running = new AtomicBoolean();
+
+        scheduler.scheduleAtFixedRate(() -> {
+            if(!running.compareAndSet(false, true)) {
+                return;
+            }
+
+            final boolean accepted = executor.tryExecute(() -> {
+                try {
+                    task.run();
+                }
+                catch (RuntimeException exception) {
+                    plugin.getLogger().log(Level.SEVERE, "A repeating task on the " + executor.getName() + " executor failed.", exception);
+                }
+                finally {
+                    running.set(false);
+                }
+            });
+
+            if(!accepted) {
+                running.set(false);
+            }
+        }, delay, period, unit);
+    }
+
+    /**
+     * Get all executors.
+     * @return Collection of every executor.
+     */
+    public Collection<IOExecutor> getExecutors() {
+        return Arrays.asList(database, redis, files);
+    }
+
+    /**
+     * Stops repeating tasks and all executors, giving running tasks a few seconds to finish.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+
+        for(final IOExecutor executor : getExecutors()) {
+            executor.shutdown(5000);
+        }
+    }
+
+    /**
+     * Creates an executor from its config section.
+     * @param plugin Instance of the plugin.
+     * @param name Display name of the executor.
+     * @param key Config key of the executor.
+     * @param defaultThreads Threads to use if not configured.
+     * @param defaultQueue Queue size to use if not configured.
+     * @param virtual Whether the executor should use virtual threads.
+     * @return Created executor.
+     */
+    private IOExecutor createExecutor(@NotNull final JadedMCPlugin plugin, @NotNull final String name, @NotNull final String key, final int defaultThreads, final int defaultQueue, final boolean virtual) {
+        final int threads = Math.max(1, plugin.getConfigManager().getConfig().getInt("Executors." + key + ".threads", defaultThreads));
+        final int queue = Math.max(1, plugin.getConfigManager().getConfig().getInt("Executors." + key + ".queue", defaultQueue));
+        return new IOExecutor(name, plugin.getLogger(), threads, queue, virtual);
+    }
+}
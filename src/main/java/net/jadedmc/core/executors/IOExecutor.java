@@ -0,0 +1,257 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.executors;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * A named, bounded executor used for one kind of blocking I/O.
+ * Runs tasks either on a fixed pool of platform threads, or on one virtual thread per task.
+ * Tasks beyond the configured limit are rejected instead of piling up.
+ */
+public class IOExecutor implements Executor {
+    private final String name;
+    private final Logger logger;
+    private final int queueCapacity;
+    private final boolean virtual;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor threadPool;
+    private final Semaphore permits;
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong lastRejectionWarning = new AtomicLong();
+
+    /**
+     * Creates the executor.
+     * @param name Name of the executor, used to name its threads.
+     * @param logger Logger to report rejected tasks to.
+     * @param threads Maximum number of platform threads. Unused with virtual threads.
+     * @param queueCapacity Maximum number of tasks waiting for a thread.
+     *                      With virtual threads, the maximum number of tasks running at once.
+     * @param virtual Whether tasks should run on virtual threads.
+     */
+    public IOExecutor(@NotNull final String name, @NotNull final Logger logger, final int threads, final int queueCapacity, final boolean virtual) {
+        this.name = name;
+        this.logger = logger;
+        this.queueCapacity = queueCapacity;
+        this.virtual = virtual;
+
+        if(virtual) {
+            // Virtual threads are cheap to block, so every task gets its own.
+            // The semaphore keeps a runaway caller from spawning an unbounded number of them.
+            this.threadPool = null;
+            this.permits = new Semaphore(queueCapacity);
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("JadedCore " + name + " #", 1).factory());
+            return;
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "JadedCore " + name + " #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        this.permits = null;
+        this.threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), threadFactory, (runnable, pool) -> {
+            throw new RejectedExecutionException("The " + name + " executor is full (" + queueCapacity + " tasks queued).");
+        });
+
+        // Let idle threads die off between bursts.
+        this.threadPool.allowCoreThreadTimeOut(true);
+        this.executor = threadPool;
+    }
+
+    /**
+     * Runs a task on the executor.
+     * @param runnable Task to run.
+     * @throws RejectedExecutionException If the executor is full or shut down.
+     */
+    @Override
+    public void execute(@NotNull final Runnable runnable) {
+        if(permits != null && !permits.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException("The " + name + " executor is full (" + queueCapacity + " tasks running).");
+        }
+
+        try {
+            executor.execute(() -> {
+                running.incrementAndGet();
+
+                try {
+                    runnable.run();
+                }
+                finally {
+                    running.decrementAndGet();
+                    completed.increment();
+
+                    if(permits != null) {
+                        permits.release();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException exception) {
+            if(permits != null) {
+                permits.release();
+            }
+
+            rejected.increment();
+            throw exception;
+        }
+    }
+
+    /**
+     * Runs a task on the executor, without throwing if it is full.
+     * Use this for fire-and-forget work started from the main thread, such as event handlers.
+     * Rejected tasks are counted, and logged at most once every 5 seconds.
+     * @param runnable Task to run.
+     * @return True if the task was accepted, false if it was rejected.
+     */
+    public boolean tryExecute(@NotNull final Runnable runnable) {
+        try {
+            execute(runnable);
+            return true;
+        }
+        catch (RejectedExecutionException exception) {
+            final long now = System.currentTimeMillis();
+            final long last = lastRejectionWarning.get();
+
+            if(now - last >= 5000 && lastRejectionWarning.compareAndSet(last, now)) {
+                logger.warning(exception.getMessage() + " " + rejected.sum() + " tasks have been rejected so far.");
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Runs a task on the executor, returning its result as a CompletableFuture.
+     * If the executor is full, the future is completed exceptionally instead of throwing.
+     * @param supplier Task to run.
+     * @return CompletableFuture with the result of the task.
+     * @param <T> Type of the result.
+     */
+    public <T> CompletableFuture<T> supply(@NotNull final Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, this);
+        }
+        catch (RejectedExecutionException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Get the number of tasks currently running.
+     * @return Active tasks.
+     */
+    public int getActiveCount() {
+        return running.get();
+    }
+
+    /**
+     * Get the number of tasks that have finished.
+     * @return Completed tasks.
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Get the name of the executor.
+     * @return Executor name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the maximum number of tasks that can wait for a thread.
+     * With virtual threads, this is the maximum number of tasks running at once.
+     * @return Queue capacity.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get the number of tasks waiting for a thread.
+     * Always 0 with virtual threads, as tasks never wait for one.
+     * @return Queued tasks.
+     */
+    public int getQueueSize() {
+        return threadPool == null ? 0 : threadPool.getQueue().size();
+    }
+
+    /**
+     * Get the number of tasks turned away because the executor was full.
+     * @return Rejected tasks.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the platform thread pool backing the executor.
+     * @return Thread pool, or null if using virtual threads.
+     */
+    @Nullable
+    public ThreadPoolExecutor getThreadPool() {
+        return threadPool;
+    }
+
+    /**
+     * Get if the executor runs tasks on virtual threads.
+     * @return True if using virtual threads, false if using platform threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Stops accepting tasks, and waits for running ones to finish.
+     * @param timeout Maximum time to wait, in milliseconds.
+     */
+    public void shutdown(final long timeout) {
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -38,7 +38,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -70,29 +69,22 @@ public class AchievementsGUI extends CustomGUI {
 
         int i = 0;
         for(Minigame game : games) {
-            List<Achievement> totalAchievements = plugin.getAchievementManager().getAchievements(game);
-            List<Achievement> playerAchievements = new ArrayList<>();
+            final List<Achievement> totalAchievements = plugin.getAchievementManager().getAchievements(game);
+            final int totalPoints = plugin.getAchievementManager().getTotalPoints(game);
 
+            int playerAchievements = 0;
             int playerPoints = 0;
 
-            for(Achievement achievement : jadedPlayer.getAchievements()) {
-                if(achievement.getGame() != game) {
-                    continue;
+            for(final Achievement achievement : totalAchievements) {
+                if(jadedPlayer.hasAchievement(achievement)) {
+                    playerAchievements++;
+                    playerPoints += achievement.getPoints();
                 }
-
-                playerAchievements.add(achievement);
-                playerPoints += achievement.getPoints();
-            }
-
-            int totalPoints = 0;
-
-            for(Achievement achievement : totalAchievements) {
-                totalPoints += achievement.getPoints();
             }
 
             ItemStack item = new ItemBuilder(game.getIconMaterial())
                     .setDisplayName("<green>" + game.getName())
-                    .addLore("<gray>Unlocked: <green>" + playerAchievements.size() + "<gray>/<green>" + totalAchievements.size() + " <dark_gray>(" + MathUtils.percent(playerAchievements.size(), totalAchievements.size()) + "%)")
+                    .addLore("<gray>Unlocked: <green>" + playerAchievements + "<gray>/<green>" + totalAchievements.size() + " <dark_gray>(" + MathUtils.percent(playerAchievements, totalAchievements.size()) + "%)")
                     .addLore("<gray>Points: <yellow>" + playerPoints + "<gray>/<yellow>" + totalPoints + " <dark_gray>(" + MathUtils.percent(playerPoints, totalPoints) + "%)")
                     .addLore("")
                     .addLore("<green>Click to view achievements!")
@@ -130,7 +122,7 @@ public class AchievementsGUI extends CustomGUI {
                 continue;
             }
 
-            if(jadedPlayer.getAchievements().contains(achievement)) {
+            if(jadedPlayer.hasAchievement(achievement)) {
                 ItemBuilder builder = new ItemBuilder(Material.DIAMOND, achievement.getPoints())
                         .setDisplayName("<green>" + achievement.getName())
                         .addLore("<gray>" + achievement.getDescription())
@@ -28,7 +28,6 @@ package net.jadedmc.core.guis;
 import me.clip.placeholderapi.PlaceholderAPI;
 import net.jadedmc.core.JadedAPI;
 import net.jadedmc.core.JadedMCPlugin;
-import net.jadedmc.core.achievements.Achievement;
 import net.jadedmc.core.player.JadedPlayer;
 import net.jadedmc.utils.gui.CustomGUI;
 import net.jadedmc.utils.items.ItemBuilder;
@@ -70,15 +69,10 @@ public class ProfileGUI extends CustomGUI {
                 .build();
         setItem(22, characterInfo);
 
-        int achievementPoints = 0;
-        for(final Achievement achievement : jadedPlayer.getAchievements()) {
-            achievementPoints += achievement.getPoints();
-        }
-
         ItemStack achievements = new ItemBuilder(Material.DIAMOND)
                 .setDisplayName("<green><bold>Achievements")
-                .addLore("<gray>Unlocked: <green>" + jadedPlayer.getAchievements().size())
-                .addLore("<gray>Achievement Points: <yellow>" + achievementPoints)
+                .addLore("<gray>Unlocked: <green>" + jadedPlayer.getAchievementCount())
+                .addLore("<gray>Achievement Points: <yellow>" + jadedPlayer.getAchievementPoints())
                 .build();
         setItem(31, achievements, (p, a) -> new AchievementsGUI(plugin, p).open(p));
 
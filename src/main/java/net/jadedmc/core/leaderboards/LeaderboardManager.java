@@ -28,11 +28,13 @@ package net.jadedmc.core.leaderboards;
 import net.jadedmc.core.JadedMCPlugin;
 import org.jetbrains.annotations.NotNull;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages leaderboards for various statistics.
@@ -49,7 +51,7 @@ public class LeaderboardManager {
         this.plugin = plugin;
 
         // Creates a task that updates the leaderboards every 20 minutes
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::update, 20*4, 20*60*20);
+        plugin.getExecutorManager().scheduleRepeating(plugin.getExecutorManager().getDatabaseExecutor(), this::update, 4, 20*60, TimeUnit.SECONDS);
     }
 
     /**
@@ -60,9 +62,9 @@ public class LeaderboardManager {
     }
 
     public void updateAchievementPoints() {
-        try {
+        try(Connection connection = plugin.getMySQL().borrowConnection()) {
             achievementPoints.clear();
-            PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("SELECT * FROM player_info ORDER BY achievementPoints DESC LIMIT 10");
+            PreparedStatement statement = connection.prepareStatement("SELECT * FROM player_info ORDER BY achievementPoints DESC LIMIT 10");
             ResultSet resultSet = statement.executeQuery();
 
             while(resultSet.next()) {
@@ -0,0 +1,95 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.listeners;
+
+import net.jadedmc.core.JadedMCPlugin;
+import net.jadedmc.utils.chat.ChatUtils;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+/**
+ * Listens to the AsyncPlayerPreLoginEvent, which is called off the main thread while a player is logging in.
+ * Used to load the player's profile before they join, so the database round trips overlap with the login.
+ */
+public class AsyncPlayerPreLoginListener implements Listener {
+    private final JadedMCPlugin plugin;
+
+    /**
+     * Creates the Listener.
+     * @param plugin Instance of the plugin.
+     */
+    public AsyncPlayerPreLoginListener(JadedMCPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Runs when the AsyncPlayerPreLoginEvent is called.
+     * Runs after LuckPerms has loaded the player, and kicks them if their profile cannot be loaded in time.
+     * @param event AsyncPlayerPreLoginEvent.
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Exit if another plugin already denied the login.
+        if(event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        final UUID uuid = event.getUniqueId();
+        final long timeout = plugin.getConfigManager().getConfig().getLong("MySQL.loginTimeout", 5000);
+
+        try {
+            plugin.getJadedPlayerManager().stageProfile(uuid, event.getName(), event.getAddress().getHostAddress()).get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException exception) {
+            plugin.getLogger().warning("Loading the profile of " + event.getName() + " took longer than " + timeout + "ms.");
+            deny(event);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            deny(event);
+        }
+        catch (Exception exception) {
+            plugin.getLogger().log(Level.WARNING, "Could not load the profile of " + event.getName() + ".", exception);
+            deny(event);
+        }
+    }
+
+    /**
+     * Kicks a player whose profile could not be loaded.
+     * @param event AsyncPlayerPreLoginEvent.
+     */
+    private void deny(AsyncPlayerPreLoginEvent event) {
+        plugin.getJadedPlayerManager().unstageProfile(event.getUniqueId());
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, ChatUtils.translate("<red>Could not load your profile. Please try again in a moment."));
+    }
+}
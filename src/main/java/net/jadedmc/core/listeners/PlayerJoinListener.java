@@ -70,7 +70,7 @@ public class PlayerJoinListener implements Listener {
             }
         }
 
-        // Load the JadedPlayer.
+        // Load the JadedPlayer. Usually instant, as the profile was already loaded during login.
         plugin.getJadedPlayerManager().addPlayer(player).thenAccept(jadedPlayer -> {
 
             // Join Message
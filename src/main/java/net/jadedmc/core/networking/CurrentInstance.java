@@ -30,6 +30,8 @@ import net.jadedmc.core.minigames.Minigame;
 import org.bson.Document;
 import org.bukkit.Bukkit;
 import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 
 import java.net.DatagramSocket;
 import java.net.InetAddress;
@@ -214,8 +216,19 @@ public class CurrentInstance {
                 .append("majorVersion", majorVersion)
                 .append("minorVersion", minorVersion);
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            plugin.getRedis().set("servers:" + plugin.getConfigManager().getConfig().getString("serverName"), document.toJson());
+        plugin.getExecutorManager().getRedisExecutor().tryExecute(() -> {
+            final String json = document.toJson();
+
+            // The "servers" hash is the registry read by other instances.
+            // The per-server key is kept for anything else still reading it.
+            // The heartbeat is also published, so other instances can update their local tables.
+            try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
+                final Pipeline pipeline = jedis.pipelined();
+                pipeline.hset("servers", name, json);
+                pipeline.set("servers:" + name, json);
+                pipeline.publish("instances", "heartbeat " + json);
+                pipeline.sync();
+            }
         });
     }
 
@@ -63,11 +63,7 @@ public class Instance {
         this.lastHeartbeat = document.getLong("heartbeat");
         this.startTime = document.getLong("startTime");
 
-        if((System.currentTimeMillis() - lastHeartbeat > 90000)) {
-            // If the server has not responded in 90 seconds, mark it as unresponsive.
-            this.status = InstanceStatus.UNRESPONSIVE;
-        }
-        else if(capacity == online) {
+        if(capacity == online) {
             // If the server is at capacity, mark it as full.
             this.status = InstanceStatus.FULL;
         }
@@ -160,9 +156,15 @@ public class Instance {
 
     /**
      * Gets the current status of the Instance.
+     * Checked against the heartbeat on every call, so cached instances still become unresponsive.
      * @return Instance Status.
      */
     public InstanceStatus getStatus() {
+        // If the server has not responded in 90 seconds, mark it as unresponsive.
+        if(System.currentTimeMillis() - lastHeartbeat > 90000) {
+            return InstanceStatus.UNRESPONSIVE;
+        }
+
         return status;
     }
 
@@ -28,19 +28,22 @@ package net.jadedmc.core.networking;
 import net.jadedmc.core.JadedMCPlugin;
 import net.jadedmc.core.minigames.Minigame;
 import org.jetbrains.annotations.NotNull;
-import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Monitors all currently existing Instances and provides useful methods for working with them.
+ * Keeps a local table of instances, updated by the heartbeats every instance publishes to Redis.
  */
 public class InstanceMonitor {
     private final JadedMCPlugin plugin;
     private final CurrentInstance currentInstance;
-    private final Map<Minigame, Integer> playerCounts = new HashMap<>();
-    private int playerCount = 0;
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+    private volatile PlayerCounts playerCounts = new PlayerCounts(Collections.emptyMap(), 0);
 
     /**
      * Creates the InstanceMonitor.
@@ -50,34 +53,20 @@ public class InstanceMonitor {
         this.plugin = plugin;
         this.currentInstance = new CurrentInstance(plugin);
 
+        // Listen for heartbeats from other instances.
+        plugin.getRedis().subscribe(InstanceListener::new, "instances");
+
         // Heartbeat the current instance every 5 seconds.
         plugin.getServer().getScheduler().runTaskTimer(plugin, currentInstance::heartbeat, 0, 5*20);
 
         // Tell the proxies to register the server.
         plugin.getServer().getScheduler().runTaskLater(plugin, () -> plugin.getRedis().publishAsync("proxy", "register " + this.currentInstance.getName()), 20);
 
-        // Update player counts every 30 seconds.
-        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-            getInstancesAsync().thenAccept(instances -> {
-                // Reset cached online count.
-                playerCounts.clear();
-                this.playerCount = 0;
-
-                // Add back all the valid Minigames.
-                for(final Minigame minigame : Minigame.values()) {
-                    playerCounts.put(minigame, 0);
-                }
-
-                // Check every online instance.
-                for(final Instance instance : instances) {
-                    // Update per-mode player-count.
-                    playerCounts.put(instance.getMinigame(), playerCounts.get(instance.getMinigame()) + instance.getOnline());
+        // Reload the full registry every minute, in case any messages were missed, and forget long-dead instances.
+        plugin.getExecutorManager().scheduleRepeating(plugin.getExecutorManager().getRedisExecutor(), this::refresh, 0, 60, TimeUnit.SECONDS);
 
-                    // Update global player count.
-                    this.playerCount += instance.getOnline();
-                }
-            });
-        },0, 30*20);
+        // Update player counts every second.
+        plugin.getExecutorManager().scheduleRepeating(plugin.getExecutorManager().getRedisExecutor(), this::updatePlayerCounts, 0, 1, TimeUnit.SECONDS);
     }
 
     /**
@@ -90,50 +79,51 @@ public class InstanceMonitor {
 
     /**
      * Get an instance based on its name.
+     * Uses the local table, only checking Redis if the instance is unknown.
      * @param name Name of the instance.
      * @return Instance with that name.
      */
     public Instance getInstance(@NotNull final String name) {
-        try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
-            return new Instance(jedis.get("servers:" + name));
+        final Instance instance = instances.get(name);
+
+        if(instance != null) {
+            return instance;
         }
+
+        return new Instance(plugin.getRedis().hget("servers", name));
     }
 
     /**
      * Get an instance from its name, async.
-     * @param name Name of the instance.[l
+     * @param name Name of the instance.
      * @return Instance with that name.
      */
     public CompletableFuture<Instance> getInstanceAsync(@NotNull final String name) {
-        return CompletableFuture.supplyAsync(() -> getInstance(name));
+        final Instance instance = instances.get(name);
+
+        if(instance != null) {
+            return CompletableFuture.completedFuture(instance);
+        }
+
+        return plugin.getExecutorManager().getRedisExecutor().supply(() -> getInstance(name));
     }
 
     /**
      * Get a Collection of currently registered Instances.
-     * Warning: Does so on whatever thread it is called from.
+     * Read from the local table, so it is safe to call from any thread.
      * @return Collection of Instances.
      */
     public Collection<Instance> getInstances() {
-        Collection<Instance> instances = new HashSet<>();
-
-        // Get the Instances from Redis.
-        try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
-            final Set<String> names = jedis.keys("servers:*");
-
-            for(final String key : names) {
-                instances.add(new Instance(jedis.get(key)));
-            }
-        }
-
-        return instances;
+        return new HashSet<>(instances.values());
     }
 
     /**
      * Get a collection of currently registered Instances, wrapped in a CompletableFuture.
+     * Completes immediately, as instances are read from the local table.
      * @return CompletableFuture with a Collection of Instances.
      */
     public CompletableFuture<Collection<Instance>> getInstancesAsync() {
-        return CompletableFuture.supplyAsync(this::getInstances);
+        return CompletableFuture.completedFuture(getInstances());
     }
 
     /**
@@ -142,7 +132,7 @@ public class InstanceMonitor {
      * @return Player count of the Minigame.
      */
     public int getPlayerCount(final Minigame minigame) {
-        return this.playerCounts.get(minigame);
+        return this.playerCounts.perMinigame().getOrDefault(minigame, 0);
     }
 
     /**
@@ -150,6 +140,83 @@ public class InstanceMonitor {
      * @return Current global player count.
      */
     public int getPlayerCount() {
-        return playerCount;
+        return this.playerCounts.total();
+    }
+
+    /**
+     * Recalculates player counts from the local instance table.
+     * Counts are built into a new snapshot and swapped in all at once, so readers never see a partial update.
+     */
+    private void updatePlayerCounts() {
+        final Map<Minigame, Integer> perMinigame = new EnumMap<>(Minigame.class);
+        int total = 0;
+
+        // Add all the valid Minigames.
+        for(final Minigame minigame : Minigame.values()) {
+            perMinigame.put(minigame, 0);
+        }
+
+        // Check every online instance.
+        for(final Instance instance : instances.values()) {
+            // Update per-mode player-count.
+            perMinigame.merge(instance.getMinigame(), instance.getOnline(), Integer::sum);
+
+            // Update global player count.
+            total += instance.getOnline();
+        }
+
+        this.playerCounts = new PlayerCounts(Collections.unmodifiableMap(perMinigame), total);
+    }
+
+    /**
+     * Reloads every instance from the Redis registry.
+     * Instances that have not sent a heartbeat in 5 minutes are dropped from the local table.
+     */
+    private void refresh() {
+        for(final String json : plugin.getRedis().hgetAll("servers").values()) {
+            update(new Instance(json));
+        }
+
+        instances.values().removeIf(instance -> System.currentTimeMillis() - instance.getLastHeartbeat() > 300000);
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores an instance in the local table, unless a newer heartbeat is already stored.
+     * @param instance Instance to store.
+     */
+    private void update(@NotNull final Instance instance) {
+        instances.merge(instance.getName(), instance, (current, updated) -> updated.getLastHeartbeat() >= current.getLastHeartbeat() ? updated : current);
+    }
+
+    /**
+     * Listens to instance heartbeats published to Redis.
+     * Messages are handled on the subscriber thread, since they only update the local table.
+     */
+    private class InstanceListener extends JedisPubSub {
+        @Override
+        public void onMessage(final String channel, final String message) {
+            final String[] args = message.split(" ", 2);
+
+            if(args.length < 2) {
+                return;
+            }
+
+            try {
+                switch (args[0]) {
+                    case "heartbeat" -> update(new Instance(args[1]));
+                    case "shutdown" -> instances.remove(args[1]);
+                }
+            }
+            catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the network's player counts.
+     * @param perMinigame Players in each Minigame.
+     * @param total Players on the whole network.
+     */
+    private record PlayerCounts(Map<Minigame, Integer> perMinigame, int total) {}
+}
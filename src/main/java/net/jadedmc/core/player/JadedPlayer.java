@@ -32,16 +32,11 @@ import net.jadedmc.core.achievements.Achievement;
 import net.jadedmc.core.events.LevelUpEvent;
 import net.jadedmc.utils.player.PluginPlayer;
 import net.luckperms.api.LuckPermsProvider;
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Represents a Player on the server. Stores plugin-specific data about them.
@@ -52,19 +47,24 @@ public class JadedPlayer extends PluginPlayer {
     private final Player player;
     private Rank rank;
 
-    private boolean spying = false;
-    private boolean vanished = false;
-    private int experience = 0;
-    private int level = 1;
+    private volatile boolean spying = false;
+    private volatile boolean vanished = false;
+    private volatile int experience = 0;
+    private volatile int level = 1;
     private Timestamp firstJoined;
-    private final Collection<Achievement> achievements = new ArrayList<>();
+    private final BitSet achievements = new BitSet();
+    private final Set<String> unresolvedAchievementIDs = new HashSet<>();
+    private volatile int achievementPoints = 0;
+    private volatile int achievementRevision = -1;
+    private final Set<ProfileField> dirtyFields = EnumSet.noneOf(ProfileField.class);
 
     /**
      * Creates the JadedPlayer
      * @param plugin Instance of the plugin.
      * @param player Player object to use.
+     * @param profile Saved data of the player, from JadedPlayerManager#loadProfile.
      */
-    public JadedPlayer(final JadedMCPlugin plugin, final Player player) {
+    public JadedPlayer(final JadedMCPlugin plugin, final Player player, final PlayerProfile profile) {
         super(player.getUniqueId(), player.getName());
         this.plugin = plugin;
         this.player = player;
@@ -73,81 +73,37 @@ public class JadedPlayer extends PluginPlayer {
         this.rank = Rank.fromName(LuckPermsProvider.get().getUserManager().getUser(player.getUniqueId()).getPrimaryGroup());
 
         // Player Info
-        try {
-            PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("SELECT * FROM player_info where uuid = ? LIMIT 1");
-            statement.setString(1, player.getUniqueId().toString());
-            ResultSet resultSet = statement.executeQuery();
-
-            if(resultSet.next()) {
-                level = resultSet.getInt("level");
-                experience = resultSet.getInt("experience");
-                firstJoined = resultSet.getTimestamp("firstOnline");
-            }
-            else {
-                PreparedStatement statement2 = plugin.getMySQL().getConnection().prepareStatement("INSERT INTO player_info (uuid,username,ip) VALUES (?,?,?)");
-                statement2.setString(1, getUniqueId().toString());
-                statement2.setString(2, getName());
-                statement2.setString(3, player.getAddress().getAddress().getHostAddress());
-                statement2.executeUpdate();
-
-                level = 1;
-                experience = 0;
-                firstJoined = new Timestamp(System.currentTimeMillis());
-            }
-        }
-        catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        this.level = profile.getLevel();
+        this.experience = profile.getExperience();
+        this.firstJoined = profile.getFirstJoined();
 
         // Staff settings.
         if(rank.isStaffRank()) {
-            try {
-                PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("SELECT * FROM staff_settings WHERE uuid = ? LIMIT 1");
-                statement.setString(1, player.getUniqueId().toString());
-                ResultSet results = statement.executeQuery();
-
-                if(results.next()) {
-                    spying = results.getBoolean(3);
-                    vanished = results.getBoolean(2);
-                }
-                else {
-                    PreparedStatement statement2 = plugin.getMySQL().getConnection().prepareStatement("INSERT INTO staff_settings (uuid) VALUES (?)");
-                    statement2.setString(1, player.getUniqueId().toString());
-                    statement2.executeUpdate();
-
-                    spying = false;
-                    vanished = false;
-                }
-            }
-            catch (SQLException exception) {
-                exception.printStackTrace();
-            }
+            this.spying = profile.isSpying();
+            this.vanished = profile.isVanished();
         }
 
-        // Achievements
-        try {
-            PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("SELECT * FROM player_achievements WHERE uuid = ?");
-            statement.setString(1, player.getUniqueId().toString());
-            ResultSet resultSet = statement.executeQuery();
+        // Achievements. IDs that are not registered yet are kept, and resolved once they are.
+        unresolvedAchievementIDs.addAll(profile.getAchievementIDs());
+        refreshAchievements();
+    }
 
-            while(resultSet.next()) {
-                Achievement achievement = plugin.getAchievementManager().getAchievement(resultSet.getString("achievementID"));
+    /**
+     * Gives the player an achievement.
+     * @param achievement Achievement to give.
+     * @return True if it was added, false if they already had it.
+     */
+    public boolean addAchievement(@NotNull final Achievement achievement) {
+        refreshAchievements();
 
-                if(achievement != null) {
-                    achievements.add(achievement);
-                }
+        synchronized (achievements) {
+            if(achievements.get(achievement.getIndex())) {
+                return false;
             }
 
-            int achievementPoints = getAchievementPoints();
-            if(achievementPoints > 0) {
-                PreparedStatement updateStatement = plugin.getMySQL().getConnection().prepareStatement("UPDATE player_info SET achievementPoints = ? WHERE uuid = ?");
-                updateStatement.setInt(1, achievementPoints);
-                updateStatement.setString(2, player.getUniqueId().toString());
-                updateStatement.executeUpdate();
-            }
-        }
-        catch (SQLException exception) {
-            exception.printStackTrace();
+            achievements.set(achievement.getIndex());
+            achievementPoints += achievement.getPoints();
+            return true;
         }
     }
 
@@ -162,19 +118,98 @@ public class JadedPlayer extends PluginPlayer {
         }
     }
 
+    /**
+     * Get all achievements the player has unlocked.
+     * @return Copy of the player's achievements.
+     */
     public Collection<Achievement> getAchievements() {
-        return achievements;
+        refreshAchievements();
+
+        final List<Achievement> unlocked = new ArrayList<>();
+        synchronized (achievements) {
+            for(int index = achievements.nextSetBit(0); index >= 0; index = achievements.nextSetBit(index + 1)) {
+                final Achievement achievement = plugin.getAchievementManager().getAchievement(index);
+
+                if(achievement != null) {
+                    unlocked.add(achievement);
+                }
+            }
+        }
+
+        return unlocked;
     }
 
-    public int getAchievementPoints() {
-        int achievementPoints = 0;
-        for(Achievement achievement : achievements) {
-            achievementPoints += achievement.getPoints();
+    /**
+     * Get how many achievements the player has unlocked.
+     * @return Number of unlocked achievements.
+     */
+    public int getAchievementCount() {
+        refreshAchievements();
+
+        synchronized (achievements) {
+            return achievements.cardinality();
         }
+    }
 
+    /**
+     * Get the player's total achievement points.
+     * Kept up to date as achievements are unlocked, so this does not need to add them up.
+     * @return Achievement points.
+     */
+    public int getAchievementPoints() {
+        refreshAchievements();
         return achievementPoints;
     }
 
+    /**
+     * Check if the player has unlocked an achievement.
+     * @param achievement Achievement to check.
+     * @return Whether they have it.
+     */
+    public boolean hasAchievement(@NotNull final Achievement achievement) {
+        refreshAchievements();
+
+        synchronized (achievements) {
+            return achievements.get(achievement.getIndex());
+        }
+    }
+
+    /**
+     * Resolves achievement IDs that were not registered when the player loaded, and recounts their points.
+     * Only does anything if achievements were added or replaced since it last ran.
+     */
+    private void refreshAchievements() {
+        final int revision = plugin.getAchievementManager().getRevision();
+
+        if(revision == achievementRevision) {
+            return;
+        }
+
+        synchronized (achievements) {
+            final Iterator<String> iterator = unresolvedAchievementIDs.iterator();
+            while(iterator.hasNext()) {
+                final Achievement achievement = plugin.getAchievementManager().getAchievement(iterator.next());
+
+                if(achievement != null) {
+                    achievements.set(achievement.getIndex());
+                    iterator.remove();
+                }
+            }
+
+            int points = 0;
+            for(int index = achievements.nextSetBit(0); index >= 0; index = achievements.nextSetBit(index + 1)) {
+                final Achievement achievement = plugin.getAchievementManager().getAchievement(index);
+
+                if(achievement != null) {
+                    points += achievement.getPoints();
+                }
+            }
+
+            achievementPoints = points;
+            achievementRevision = revision;
+        }
+    }
+
     public int getExperience() {
         return experience;
     }
@@ -284,17 +319,7 @@ public class JadedPlayer extends PluginPlayer {
      */
     public void setSpying(boolean spying) {
         this.spying = spying;
-
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("UPDATE staff_settings SET commandSpy = ? WHERE uuid = ?");
-                statement.setBoolean(1, spying);
-                statement.setString(2, player.getUniqueId().toString());
-                statement.executeUpdate();
-            } catch (SQLException exception) {
-                exception.printStackTrace();
-            }
-        });
+        markDirty(ProfileField.SPYING);
     }
 
     /**
@@ -323,56 +348,68 @@ public class JadedPlayer extends PluginPlayer {
             }
         }
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("UPDATE staff_settings SET vanish = ? WHERE uuid = ?");
-                statement.setBoolean(1, vanished);
-                statement.setString(2, player.getUniqueId().toString());
-                statement.executeUpdate();
-            }
-            catch (SQLException exception) {
-                exception.printStackTrace();
-            }
-        });
+        markDirty(ProfileField.VANISHED);
     }
 
     /**
      * Update the player's current rank.
      */
     public void updateRank() {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getExecutorManager().getDatabaseExecutor().tryExecute(() -> {
             // Update the player's rank.
             this.rank = Rank.fromName(LuckPermsProvider.get().getUserManager().getUser(player.getUniqueId()).getPrimaryGroup());
         });
     }
 
+    /**
+     * Set the player's experience towards their next level.
+     * Saved to MySQL on the next flush.
+     * @param experience New experience.
+     */
     public void setExperience(final int experience) {
         this.experience = experience;
-
-        try {
-            final PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("UPDATE player_info SET experience = ? WHERE uuid = ?");
-            statement.setInt(1, experience);
-            statement.setString(2, player.getUniqueId().toString());
-            statement.executeUpdate();
-        }
-        catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        markDirty(ProfileField.EXPERIENCE);
     }
 
+    /**
+     * Set the player's network level.
+     * Saved to MySQL on the next flush.
+     * @param level New level.
+     */
     public void setLevel(final int level) {
         this.level = level;
+        markDirty(ProfileField.LEVEL);
+    }
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                final PreparedStatement statement = plugin.getMySQL().getConnection().prepareStatement("UPDATE player_info SET level = ? WHERE uuid = ?");
-                statement.setInt(1, level);
-                statement.setString(2, player.getUniqueId().toString());
-                statement.executeUpdate();
-            }
-            catch (SQLException exception) {
-                exception.printStackTrace();
-            }
-        });
+    /**
+     * Marks a field as changed, so it gets written to MySQL on the next flush.
+     * @param field Field that changed.
+     */
+    void markDirty(final ProfileField field) {
+        markDirty(Collections.singleton(field));
+    }
+
+    /**
+     * Marks fields as changed, so they get written to MySQL on the next flush.
+     * @param fields Fields that changed.
+     */
+    void markDirty(final Collection<ProfileField> fields) {
+        synchronized (dirtyFields) {
+            dirtyFields.addAll(fields);
+        }
+
+        plugin.getJadedPlayerManager().getProfileWriter().markDirty(this);
+    }
+
+    /**
+     * Gets all fields changed since the last flush, and clears them.
+     * @return Changed fields.
+     */
+    Set<ProfileField> drainDirtyFields() {
+        synchronized (dirtyFields) {
+            final Set<ProfileField> fields = EnumSet.copyOf(dirtyFields);
+            dirtyFields.clear();
+            return fields;
+        }
     }
 }
\ No newline at end of file
@@ -26,21 +26,38 @@
 package net.jadedmc.core.player;
 
 import net.jadedmc.core.JadedMCPlugin;
-import org.bukkit.Bukkit;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.model.user.User;
 import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class manages the Jaded Player object, which stores general data for players, such as their current rank.
+ * Players are keyed by UUID in concurrent maps, so they can be looked up from any thread.
  */
 public class JadedPlayerManager {
     private final JadedMCPlugin plugin;
-    private final Map<Player, JadedPlayer> jadedPlayers = new HashMap<>();
+    private final Map<UUID, JadedPlayer> jadedPlayers = new ConcurrentHashMap<>();
+    private final Map<UUID, LoadState> loadStates = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Void>> pendingSaves = new ConcurrentHashMap<>();
+    private final Map<UUID, StagedProfile> stagedProfiles = new ConcurrentHashMap<>();
+    private final Map<UUID, SaveMarker> lastSaves = new ConcurrentHashMap<>();
+    private final AtomicLong saveSequence = new AtomicLong();
+    private final ProfileWriter profileWriter;
+    private final ProfileCache profileCache;
+    private final UnsavedChanges unsavedChanges;
 
     /**
      * Initializes the Jaded Player Manager.
@@ -48,19 +65,251 @@ public class JadedPlayerManager {
      */
     public JadedPlayerManager(final JadedMCPlugin plugin) {
         this.plugin = plugin;
+        this.profileWriter = new ProfileWriter(plugin);
+        this.profileCache = new ProfileCache(plugin);
+        this.unsavedChanges = new UnsavedChanges(plugin);
     }
 
     /**
      * Add a player to the player list.
+     * Uses the profile staged for them during login if there is one, which makes this instant.
+     * Otherwise loads it now, first waiting for their last session to finish saving, whether on this server or another.
+     * Staged profiles are thrown away if a save of their last session started after they were loaded, as they would be out of date.
+     * The JadedPlayer is only registered if the player is still online once it loads.
      * @param player Player to add.
      * @return JadedPlayer completable future.
      */
     public CompletableFuture<JadedPlayer> addPlayer(Player player) {
-        return CompletableFuture.supplyAsync(() -> {
-            JadedPlayer jadedPlayer = new JadedPlayer(plugin, player);
-            jadedPlayers.put(player, jadedPlayer);
+        final UUID uuid = player.getUniqueId();
+
+        // Claims the profile loaded during login.
+        final StagedProfile stagedProfile = stagedProfiles.remove(uuid);
+        final SaveMarker lastSave = lastSaves.get(uuid);
+        if(stagedProfile != null && (lastSave == null || lastSave.sequence() <= stagedProfile.saveSequence())) {
+            final JadedPlayer jadedPlayer = new JadedPlayer(plugin, player, stagedProfile.profile());
+            jadedPlayers.put(uuid, jadedPlayer);
+            loadStates.put(uuid, LoadState.READY);
+            return CompletableFuture.completedFuture(jadedPlayer);
+        }
+
+        loadStates.put(uuid, LoadState.LOADING);
+
+        final CompletableFuture<JadedPlayer> load = loadProfileAsync(uuid, player.getName(), player.getAddress().getAddress().getHostAddress()).thenApply(profile -> {
+            // Publishes the player before marking them ready, so anything that sees READY can find them.
+            final JadedPlayer jadedPlayer = new JadedPlayer(plugin, player, profile);
+            jadedPlayers.put(uuid, jadedPlayer);
+
+            if(!loadStates.replace(uuid, LoadState.LOADING, LoadState.READY)) {
+                // They left while loading.
+                jadedPlayers.remove(uuid, jadedPlayer);
+                throw new CancellationException(player.getName() + " left before their profile loaded.");
+            }
+
             return jadedPlayer;
         });
+
+        load.exceptionally(exception -> {
+            loadStates.remove(uuid, LoadState.LOADING);
+            return null;
+        });
+
+        return load;
+    }
+
+    /**
+     * Loads a player's profile while they are logging in, and holds it until they join.
+     * Nothing is staged if a server still has unsaved changes of theirs. That server only saves them once the player
+     * leaves it, which the proxy does after this login finishes, so the profile is loaded when they join instead.
+     * Profiles that are never claimed by addPlayer are dropped after a minute.
+     * @param uuid UUID of the player.
+     * @param name Username of the player.
+     * @param address IP address of the player.
+     * @return CompletableFuture with the staged profile, or null if it will be loaded on join.
+     */
+    public CompletableFuture<PlayerProfile> stageProfile(@NotNull final UUID uuid, @NotNull final String name, @NotNull final String address) {
+        purgeStagedProfiles();
+        loadStates.put(uuid, LoadState.LOADING);
+
+        // Remembers which saves had started before loading, so addPlayer can tell if a later one makes this stale.
+        final long sequence = saveSequence.get();
+
+        return plugin.getExecutorManager().getRedisExecutor().supply(() -> unsavedChanges.isMarked(uuid)).thenCompose(unsaved -> {
+            if(unsaved) {
+                loadStates.remove(uuid, LoadState.LOADING);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return loadProfileAsync(uuid, name, address).thenApply(profile -> {
+                stagedProfiles.put(uuid, new StagedProfile(profile, sequence, System.currentTimeMillis()));
+                return profile;
+            });
+        });
+    }
+
+    /**
+     * Drops a player's staged profile, such as when their login is denied.
+     * @param uuid UUID of the player.
+     */
+    public void unstageProfile(@NotNull final UUID uuid) {
+        stagedProfiles.remove(uuid);
+        loadStates.remove(uuid, LoadState.LOADING);
+    }
+
+    /**
+     * Loads a player's profile on the database executor.
+     * Waits for their last session to finish saving first, on this server and any other, so nothing they just changed is missed.
+     * Uses the profile cached in Redis if there is one, and only falls back to MySQL if there is not.
+     * The cache is skipped if another server never finished saving, as it may not have everything.
+     * @param uuid UUID of the player.
+     * @param name Username of the player.
+     * @param address IP address of the player.
+     * @return CompletableFuture with the loaded profile.
+     */
+    private CompletableFuture<PlayerProfile> loadProfileAsync(@NotNull final UUID uuid, @NotNull final String name, @NotNull final String address) {
+        final CompletableFuture<Void> pendingSave = pendingSaves.getOrDefault(uuid, CompletableFuture.completedFuture(null));
+
+        return pendingSave.handle((result, exception) -> null).thenCompose(ignored -> unsavedChanges.await(uuid)).thenCompose(saved -> plugin.getExecutorManager().getDatabaseExecutor().supply(() -> {
+            // LuckPerms loads users during login, but load them here in case this runs first.
+            User user = LuckPermsProvider.get().getUserManager().getUser(uuid);
+            if(user == null) {
+                user = LuckPermsProvider.get().getUserManager().loadUser(uuid).join();
+            }
+
+            final boolean staff = Rank.fromName(user.getPrimaryGroup()).isStaffRank();
+
+            if(!saved) {
+                try {
+                    return loadProfile(uuid, name, address, staff);
+                }
+                catch (SQLException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+
+            final ProfileCache.Lookup lookup = profileCache.get(uuid, staff);
+            if(lookup.profile() != null) {
+                return lookup.profile();
+            }
+
+            try {
+                final PlayerProfile profile = loadProfile(uuid, name, address, staff);
+                profileCache.put(profile, staff, lookup);
+                return profile;
+            }
+            catch (SQLException exception) {
+                throw new RuntimeException(exception);
+            }
+        }));
+    }
+
+    /**
+     * Drops staged profiles whose players never finished joining, and save markers no staged profile could still be compared to.
+     */
+    private void purgeStagedProfiles() {
+        final long cutoff = System.currentTimeMillis() - 60000;
+        lastSaves.entrySet().removeIf(entry -> entry.getValue().startedAt() < cutoff && !pendingSaves.containsKey(entry.getKey()));
+
+        stagedProfiles.entrySet().removeIf(entry -> {
+            if(entry.getValue().stagedAt() > cutoff) {
+                return false;
+            }
+
+            loadStates.remove(entry.getKey(), LoadState.LOADING);
+            return true;
+        });
+    }
+
+    /**
+     * Loads a player's saved data from MySQL, creating it if they are new.
+     * Everything is sent as a single multi-statement query, so loading only takes one round trip.
+     * Warning: Does so on whatever thread it is called from.
+     * @param uuid UUID of the player.
+     * @param name Username of the player. Only saved if the player is new.
+     * @param address IP address of the player. Only saved if the player is new.
+     * @param staff Whether the player should have staff settings.
+     * @return Loaded profile.
+     * @throws SQLException If the profile could not be loaded.
+     */
+    public PlayerProfile loadProfile(@NotNull final UUID uuid, @NotNull final String name, @NotNull final String address, final boolean staff) throws SQLException {
+        // Inserts missing rows, reads player data, and refreshes the stored achievement points.
+        final StringBuilder query = new StringBuilder()
+                .append("INSERT IGNORE INTO player_info (uuid,username,ip) VALUES (?,?,?);");
+
+        if(staff) {
+            query.append("INSERT IGNORE INTO staff_settings (uuid) VALUES (?);");
+        }
+
+        query.append("SELECT level, experience, firstOnline FROM player_info WHERE uuid = ? LIMIT 1;")
+                .append("SELECT vanish, commandSpy FROM staff_settings WHERE uuid = ? LIMIT 1;")
+                .append("SELECT achievementID FROM player_achievements WHERE uuid = ?;")
+                .append("UPDATE player_info SET achievementPoints = (SELECT COALESCE(SUM(achievements_list.achievementPoints), 0) FROM player_achievements JOIN achievements_list ON achievements_list.id = player_achievements.achievementID WHERE player_achievements.uuid = ?) WHERE uuid = ?;");
+
+        int level = 1;
+        int experience = 0;
+        Timestamp firstJoined = new Timestamp(System.currentTimeMillis());
+        boolean vanished = false;
+        boolean spying = false;
+        final Collection<String> achievementIDs = new ArrayList<>();
+
+        try(Connection connection = plugin.getMySQL().borrowProfileConnection(); PreparedStatement statement = connection.prepareStatement(query.toString())) {
+            final String uuidString = uuid.toString();
+
+            int parameter = 1;
+            statement.setString(parameter++, uuidString);
+            statement.setString(parameter++, name);
+            statement.setString(parameter++, address);
+
+            if(staff) {
+                statement.setString(parameter++, uuidString);
+            }
+
+            statement.setString(parameter++, uuidString);
+            statement.setString(parameter++, uuidString);
+            statement.setString(parameter++, uuidString);
+            statement.setString(parameter++, uuidString);
+            statement.setString(parameter, uuidString);
+
+            // Walks through each result in the order the statements were written, skipping update counts.
+            int resultSetIndex = 0;
+            boolean isResultSet = statement.execute();
+            while(isResultSet || statement.getUpdateCount() != -1) {
+                if(isResultSet) {
+                    try(ResultSet resultSet = statement.getResultSet()) {
+                        switch (resultSetIndex) {
+                            // Player Info
+                            case 0 -> {
+                                if(resultSet.next()) {
+                                    level = resultSet.getInt("level");
+                                    experience = resultSet.getInt("experience");
+                                    firstJoined = resultSet.getTimestamp("firstOnline");
+                                }
+                            }
+
+                            // Staff Settings
+                            case 1 -> {
+                                if(resultSet.next()) {
+                                    vanished = resultSet.getBoolean("vanish");
+                                    spying = resultSet.getBoolean("commandSpy");
+                                }
+                            }
+
+                            // Achievements
+                            case 2 -> {
+                                while(resultSet.next()) {
+                                    achievementIDs.add(resultSet.getString("achievementID"));
+                                }
+                            }
+                        }
+                    }
+
+                    resultSetIndex++;
+                }
+
+                isResultSet = statement.getMoreResults();
+            }
+        }
+
+        return new PlayerProfile(uuid, level, experience, firstJoined, spying, vanished, achievementIDs);
     }
 
     /**
@@ -69,7 +318,7 @@ public class JadedPlayerManager {
      * @return JadedPlayer of the player.
      */
     public JadedPlayer getPlayer(Player player) {
-        return jadedPlayers.get(player);
+        return jadedPlayers.get(player.getUniqueId());
     }
 
     /**
@@ -78,7 +327,17 @@ public class JadedPlayerManager {
      * @return JadedPlayer of the player.
      */
     public JadedPlayer getPlayer(UUID uuid) {
-        return this.getPlayer(Bukkit.getPlayer(uuid));
+        return jadedPlayers.get(uuid);
+    }
+
+    /**
+     * Get where a player's JadedPlayer is in its lifecycle.
+     * @param uuid UUID of the player.
+     * @return Load state of the player, or null if they are not on this server.
+     */
+    @Nullable
+    public LoadState getLoadState(UUID uuid) {
+        return loadStates.get(uuid);
     }
 
     /**
@@ -89,11 +348,77 @@ public class JadedPlayerManager {
         return jadedPlayers.values();
     }
 
+    /**
+     * Get the writer used to save changed player data.
+     * @return Profile writer.
+     */
+    public ProfileWriter getProfileWriter() {
+        return profileWriter;
+    }
+
+    /**
+     * Get the Redis cache player profiles are shared between servers with.
+     * @return Profile cache.
+     */
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+
+    /**
+     * Get the Redis flags that tell other servers a player has changes that are not saved yet.
+     * @return Unsaved changes tracker.
+     */
+    public UnsavedChanges getUnsavedChanges() {
+        return unsavedChanges;
+    }
+
     /**
      * Remove a player from the player list.
+     * Saves any of their changes and achievements that have not been written yet, then removes their cached profile
+     * and their unsaved changes flag, so the next server loads what was just written.
      * @param player Player to remove.
      */
     public void removePlayer(Player player) {
-        jadedPlayers.remove(player);
+        final UUID uuid = player.getUniqueId();
+
+        // Also stops a load that is still running from registering them.
+        loadStates.put(uuid, LoadState.UNLOADING);
+        final JadedPlayer jadedPlayer = jadedPlayers.remove(uuid);
+
+        if(jadedPlayer == null) {
+            loadStates.remove(uuid, LoadState.UNLOADING);
+            return;
+        }
+
+        lastSaves.put(uuid, new SaveMarker(saveSequence.incrementAndGet(), System.currentTimeMillis()));
+
+        final CompletableFuture<Void> save = plugin.getExecutorManager().getDatabaseExecutor().supply(() -> {
+            profileWriter.flush(jadedPlayer);
+            plugin.getAchievementManager().getAchievementWriter().flush();
+            profileCache.invalidate(Collections.singletonList(uuid));
+            unsavedChanges.clear(uuid);
+            return null;
+        });
+
+        pendingSaves.put(uuid, save);
+        save.whenComplete((result, exception) -> {
+            pendingSaves.remove(uuid, save);
+            loadStates.remove(uuid, LoadState.UNLOADING);
+        });
     }
-}
\ No newline at end of file
+
+    /**
+     * A profile loaded during login, waiting for its player to join.
+     * @param profile Loaded profile.
+     * @param saveSequence Sequence number of the last save that had started when loading began.
+     * @param stagedAt When it was loaded.
+     */
+    private record StagedProfile(PlayerProfile profile, long saveSequence, long stagedAt) {}
+
+    /**
+     * The last time a player's session started saving.
+     * @param sequence Sequence number of the save, which increases with every save.
+     * @param startedAt When the save started.
+     */
+    private record SaveMarker(long sequence, long startedAt) {}
+}
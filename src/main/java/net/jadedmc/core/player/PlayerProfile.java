@@ -0,0 +1,122 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.player;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Stores the saved data of a player, as loaded from the database.
+ * Used to create a JadedPlayer without querying the database again.
+ */
+public class PlayerProfile {
+    private final UUID uuid;
+    private final int level;
+    private final int experience;
+    private final Timestamp firstJoined;
+    private final boolean spying;
+    private final boolean vanished;
+    private final Collection<String> achievementIDs;
+
+    /**
+     * Creates the profile.
+     * @param uuid UUID of the player.
+     * @param level Network level of the player.
+     * @param experience Experience towards the next level.
+     * @param firstJoined Time the player first joined the network.
+     * @param spying Whether the player is spying on commands.
+     * @param vanished Whether the player is vanished.
+     * @param achievementIDs IDs of all achievements the player has unlocked.
+     */
+    public PlayerProfile(@NotNull final UUID uuid, final int level, final int experience, @NotNull final Timestamp firstJoined, final boolean spying, final boolean vanished, @NotNull final Collection<String> achievementIDs) {
+        this.uuid = uuid;
+        this.level = level;
+        this.experience = experience;
+        this.firstJoined = firstJoined;
+        this.spying = spying;
+        this.vanished = vanished;
+        this.achievementIDs = achievementIDs;
+    }
+
+    /**
+     * Get the IDs of all achievements the player has unlocked.
+     * @return Unlocked achievement IDs.
+     */
+    public Collection<String> getAchievementIDs() {
+        return achievementIDs;
+    }
+
+    /**
+     * Get the experience the player has towards their next level.
+     * @return Player experience.
+     */
+    public int getExperience() {
+        return experience;
+    }
+
+    /**
+     * Get the time the player first joined the network.
+     * @return First join time.
+     */
+    public Timestamp getFirstJoined() {
+        return firstJoined;
+    }
+
+    /**
+     * Get the network level of the player.
+     * @return Player level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the UUID of the player the profile belongs to.
+     * @return Player UUID.
+     */
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * Get if the player is spying on commands.
+     * @return Whether they are spying on commands.
+     */
+    public boolean isSpying() {
+        return spying;
+    }
+
+    /**
+     * Get if the player is vanished.
+     * @return Whether they are vanished.
+     */
+    public boolean isVanished() {
+        return vanished;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.player;
+
+import net.jadedmc.core.JadedMCPlugin;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Caches player profiles in Redis, so servers a player switches to do not have to load them from MySQL again.
+ * Entries are only ever filled from a MySQL read, and are removed whenever a server writes the player's data,
+ * so the cache never holds anything newer or older than MySQL.
+ * Each player also has a generation counter, bumped on every write. A MySQL read is only cached if no write happened
+ * since it started, so a slow read can never put old data back after a newer write removed it.
+ */
+public class ProfileCache {
+    private static final String PUT_SCRIPT =
+            "if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end " +
+            "redis.call('SETEX', KEYS[1], ARGV[2], ARGV[3]) " +
+            "return 1";
+    private static final String INVALIDATE_SCRIPT =
+            "for i = 1, #KEYS, 2 do " +
+            "redis.call('DEL', KEYS[i]) " +
+            "redis.call('INCR', KEYS[i + 1]) " +
+            "redis.call('EXPIRE', KEYS[i + 1], ARGV[1]) " +
+            "end " +
+            "return #KEYS / 2";
+    private final JadedMCPlugin plugin;
+    private final long ttl;
+
+    /**
+     * Creates the cache.
+     * @param plugin Instance of the plugin.
+     */
+    public ProfileCache(@NotNull final JadedMCPlugin plugin) {
+        this.plugin = plugin;
+        this.ttl = plugin.getConfigManager().getConfig().getLong("Redis.profileTTL", 300);
+    }
+
+    /**
+     * Get whether profiles are cached at all.
+     * @return True if the cache is enabled.
+     */
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * Get a player's cached profile, along with the generation needed to cache it after loading it from MySQL.
+     * Warning: Does so on whatever thread it is called from.
+     * @param uuid UUID of the player.
+     * @param staff Whether the player is a staff member.
+     * @return Result of the lookup. Its profile is null if it has to be loaded from MySQL.
+     */
+    @NotNull
+    public Lookup get(@NotNull final UUID uuid, final boolean staff) {
+        if(!isEnabled()) {
+            return Lookup.DISABLED;
+        }
+
+        try {
+            final List<String> values = plugin.getRedis().mget(Arrays.asList(key(uuid), generationKey(uuid)));
+            final String json = values.get(0);
+            final String generation = values.get(1) == null ? "" : values.get(1);
+
+            if(json == null) {
+                return new Lookup(null, generation);
+            }
+
+            final Document document = Document.parse(json);
+
+            // Players who became staff since they were cached still need their staff settings created.
+            if(staff && !document.getBoolean("staff", false)) {
+                return new Lookup(null, generation);
+            }
+
+            return new Lookup(new PlayerProfile(uuid,
+                    document.getInteger("level"),
+                    document.getInteger("experience"),
+                    new Timestamp(document.getLong("firstJoined")),
+                    document.getBoolean("spying"),
+                    document.getBoolean("vanished"),
+                    document.getList("achievements", String.class)), generation);
+        }
+        catch (RuntimeException exception) {
+            // Fall back to MySQL if Redis is unavailable or the entry is malformed.
+            exception.printStackTrace();
+            return Lookup.DISABLED;
+        }
+    }
+
+    /**
+     * Caches a profile just loaded from MySQL, unless the player's data was written since the lookup that missed.
+     * Warning: Does so on whatever thread it is called from.
+     * @param profile Profile loaded from MySQL.
+     * @param staff Whether the player is a staff member.
+     * @param lookup Lookup made before loading the profile.
+     */
+    public void put(@NotNull final PlayerProfile profile, final boolean staff, @NotNull final Lookup lookup) {
+        if(!isEnabled() || lookup.generation() == null) {
+            return;
+        }
+
+        final UUID uuid = profile.getUniqueId();
+
+        try {
+            plugin.getRedis().eval(PUT_SCRIPT, Arrays.asList(key(uuid), generationKey(uuid)), Arrays.asList(lookup.generation(), String.valueOf(ttl), toJson(profile, staff)));
+        }
+        catch (RuntimeException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes cached profiles after their data is written, so they are loaded from MySQL next time.
+     * Also stops any MySQL read that started before the write from being cached.
+     * Warning: Does so on whatever thread it is called from.
+     * @param uuids UUIDs of the players.
+     */
+    public void invalidate(@NotNull final Collection<UUID> uuids) {
+        if(!isEnabled() || uuids.isEmpty()) {
+            return;
+        }
+
+        final List<String> keys = new ArrayList<>();
+        for(final UUID uuid : uuids) {
+            keys.add(key(uuid));
+            keys.add(generationKey(uuid));
+        }
+
+        try {
+            plugin.getRedis().eval(INVALIDATE_SCRIPT, keys, Collections.singletonList(String.valueOf(ttl)));
+        }
+        catch (RuntimeException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the Redis key a player's profile is cached under.
+     * @param uuid UUID of the player.
+     * @return Redis key.
+     */
+    private String key(@NotNull final UUID uuid) {
+        return "jadedprofiles:" + uuid;
+    }
+
+    /**
+     * Get the Redis key of a player's write generation.
+     * @param uuid UUID of the player.
+     * @return Redis key.
+     */
+    private String generationKey(@NotNull final UUID uuid) {
+        return "jadedprofiles:" + uuid + ":generation";
+    }
+
+    /**
+     * Serializes a profile.
+     * @param profile Profile to serialize.
+     * @param staff Whether the player is a staff member.
+     * @return Profile as JSON.
+     */
+    private String toJson(@NotNull final PlayerProfile profile, final boolean staff) {
+        return new Document()
+                .append("level", profile.getLevel())
+                .append("experience", profile.getExperience())
+                .append("firstJoined", profile.getFirstJoined().getTime())
+                .append("staff", staff)
+                .append("spying", profile.isSpying())
+                .append("vanished", profile.isVanished())
+                .append("achievements", new ArrayList<>(profile.getAchievementIDs()))
+                .toJson();
+    }
+
+    /**
+     * The result of looking up a cached profile.
+     * @param profile Cached profile, or null if there was none.
+     * @param generation Write generation of the player when it was looked up, or null if the result must not be cached.
+     */
+    public record Lookup(@Nullable PlayerProfile profile, @Nullable String generation) {
+        private static final Lookup DISABLED = new Lookup(null, null);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.player;
+
+/**
+ * Represents a piece of saved player data that can be changed while the player is online.
+ * Used to track which columns need to be written back to MySQL.
+ */
+public enum ProfileField {
+    LEVEL("player_info", "level"),
+    EXPERIENCE("player_info", "experience"),
+    SPYING("staff_settings", "commandSpy"),
+    VANISHED("staff_settings", "vanish");
+
+    private final String table;
+    private final String column;
+
+    /**
+     * Creates the field.
+     * @param table MySQL table the field is stored in.
+     * @param column Column of the table the field is stored in.
+     */
+    ProfileField(final String table, final String column) {
+        this.table = table;
+        this.column = column;
+    }
+
+    /**
+     * Get the column the field is stored in.
+     * @return MySQL column name.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the table the field is stored in.
+     * @return MySQL table name.
+     */
+    public String getTable() {
+        return table;
+    }
+}
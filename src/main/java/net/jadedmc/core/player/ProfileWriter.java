@@ -0,0 +1,174 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.player;
+
+import net.jadedmc.core.JadedMCPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes changed player data to MySQL in the background.
+ * Changes are collected per player and merged into one UPDATE per table each flush,
+ * instead of sending a query every time a value changes.
+ */
+public class ProfileWriter {
+    private final JadedMCPlugin plugin;
+    private final Set<JadedPlayer> dirtyPlayers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates the writer and starts the flush task.
+     * @param plugin Instance of the plugin.
+     */
+    public ProfileWriter(@NotNull final JadedMCPlugin plugin) {
+        this.plugin = plugin;
+
+        // Writes changes every few seconds, as set in the config.
+        final long interval = Math.max(1, plugin.getConfigManager().getConfig().getLong("MySQL.flushInterval", 10));
+        plugin.getExecutorManager().scheduleRepeating(plugin.getExecutorManager().getDatabaseExecutor(), this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Marks a player as having changes that need to be saved.
+     * Also flags them in Redis, so a server they switch to waits for the changes to be written.
+     * @param jadedPlayer Player with unsaved changes.
+     */
+    public void markDirty(@NotNull final JadedPlayer jadedPlayer) {
+        if(dirtyPlayers.add(jadedPlayer)) {
+            plugin.getJadedPlayerManager().getUnsavedChanges().mark(jadedPlayer.getUniqueId());
+        }
+    }
+
+    /**
+     * Writes the changes of every player with unsaved changes.
+     * Warning: Does so on whatever thread it is called from.
+     */
+    public void flush() {
+        final Collection<JadedPlayer> players = new ArrayList<>();
+
+        for(final JadedPlayer jadedPlayer : dirtyPlayers) {
+            if(dirtyPlayers.remove(jadedPlayer)) {
+                players.add(jadedPlayer);
+            }
+        }
+
+        save(players);
+    }
+
+    /**
+     * Writes the changes of a single player, if they have any.
+     * Warning: Does so on whatever thread it is called from.
+     * @param jadedPlayer Player to save.
+     */
+    public void flush(@NotNull final JadedPlayer jadedPlayer) {
+        if(dirtyPlayers.remove(jadedPlayer)) {
+            save(Collections.singletonList(jadedPlayer));
+        }
+    }
+
+    /**
+     * Saves the changed fields of a group of players, using one connection.
+     * The cached profiles of the players are removed afterwards.
+     * @param players Players to save.
+     */
+    private void save(@NotNull final Collection<JadedPlayer> players) {
+        if(players.isEmpty()) {
+            return;
+        }
+
+        try(Connection connection = plugin.getMySQL().borrowConnection()) {
+            for(final JadedPlayer jadedPlayer : players) {
+                final Set<ProfileField> fields = jadedPlayer.drainDirtyFields();
+
+                try {
+                    save(connection, jadedPlayer, fields);
+                }
+                catch (SQLException exception) {
+                    // Try again next flush.
+                    jadedPlayer.markDirty(fields);
+                    exception.printStackTrace();
+                }
+            }
+        }
+        catch (SQLException exception) {
+            // Could not get a connection, so nothing was saved. Try again next flush.
+            players.forEach(this::markDirty);
+            exception.printStackTrace();
+        }
+
+        // Cached profiles of these players may no longer match MySQL.
+        final List<UUID> uuids = new ArrayList<>();
+        for(final JadedPlayer jadedPlayer : players) {
+            uuids.add(jadedPlayer.getUniqueId());
+        }
+        plugin.getJadedPlayerManager().getProfileCache().invalidate(uuids);
+    }
+
+    /**
+     * Writes the given fields of a player, with one UPDATE per table.
+     * @param connection Connection to write with.
+     * @param jadedPlayer Player to save.
+     * @param fields Fields that changed.
+     * @throws SQLException If the update failed.
+     */
+    private void save(@NotNull final Connection connection, @NotNull final JadedPlayer jadedPlayer, @NotNull final Set<ProfileField> fields) throws SQLException {
+        // Group the changed fields by the table they are stored in.
+        final Map<String, List<ProfileField>> tables = new LinkedHashMap<>();
+        for(final ProfileField field : fields) {
+            tables.computeIfAbsent(field.getTable(), table -> new ArrayList<>()).add(field);
+        }
+
+        for(final Map.Entry<String, List<ProfileField>> table : tables.entrySet()) {
+            final StringJoiner columns = new StringJoiner(", ");
+            for(final ProfileField field : table.getValue()) {
+                columns.add(field.getColumn() + " = ?");
+            }
+
+            try(PreparedStatement statement = connection.prepareStatement("UPDATE " + table.getKey() + " SET " + columns + " WHERE uuid = ?")) {
+                int parameter = 1;
+
+                for(final ProfileField field : table.getValue()) {
+                    switch (field) {
+                        case LEVEL -> statement.setInt(parameter, jadedPlayer.getLevel());
+                        case EXPERIENCE -> statement.setInt(parameter, jadedPlayer.getExperience());
+                        case SPYING -> statement.setBoolean(parameter, jadedPlayer.isSpying());
+                        case VANISHED -> statement.setBoolean(parameter, jadedPlayer.isVanished());
+                    }
+
+                    parameter++;
+                }
+
+                statement.setString(parameter, jadedPlayer.getUniqueId().toString());
+                statement.executeUpdate();
+            }
+        }
+    }
+}
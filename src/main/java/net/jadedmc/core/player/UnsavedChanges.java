@@ -0,0 +1,146 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.player;
+
+import net.jadedmc.core.JadedMCPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flags players in Redis while a server has changes of theirs that are not written to MySQL yet.
+ * Servers a player switches to wait for the flag to clear before loading them, so they never load data
+ * the last server is still holding on to.
+ * The flag expires on its own, so a server that crashes cannot block a player forever.
+ */
+public class UnsavedChanges {
+    private final JadedMCPlugin plugin;
+    private final String serverName;
+    private final long ttl;
+    private final long waitTimeout;
+
+    /**
+     * Creates the tracker.
+     * @param plugin Instance of the plugin.
+     */
+    public UnsavedChanges(@NotNull final JadedMCPlugin plugin) {
+        this.plugin = plugin;
+        this.serverName = plugin.getConfigManager().getConfig().getString("serverName");
+
+        // Outlives a few failed flushes, so the flag does not lapse while changes are still waiting.
+        final long flushInterval = Math.max(1, plugin.getConfigManager().getConfig().getLong("MySQL.flushInterval", 10));
+        this.ttl = Math.max(30, flushInterval * 3);
+        this.waitTimeout = plugin.getConfigManager().getConfig().getLong("MySQL.saveWaitTimeout", 10000);
+    }
+
+    /**
+     * Flags a player as having changes this server has not saved yet.
+     * Sent on the Redis executor, so it is safe to call from the main thread.
+     * @param uuid UUID of the player.
+     */
+    public void mark(@NotNull final UUID uuid) {
+        plugin.getExecutorManager().getRedisExecutor().supply(() -> {
+            plugin.getRedis().setex(key(uuid), ttl, serverName);
+            return null;
+        }).exceptionally(exception -> {
+            exception.printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * Removes a player's flag once everything they changed on this server is saved.
+     * Warning: Does so on whatever thread it is called from.
+     * @param uuid UUID of the player.
+     */
+    public void clear(@NotNull final UUID uuid) {
+        try {
+            plugin.getRedis().del(key(uuid));
+        }
+        catch (RuntimeException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Check if any server has changes of a player it has not saved yet.
+     * Reports no changes if Redis cannot be reached, so players can still log in.
+     * Warning: Does so on whatever thread it is called from.
+     * @param uuid UUID of the player.
+     * @return Whether the player is flagged.
+     */
+    public boolean isMarked(@NotNull final UUID uuid) {
+        try {
+            return plugin.getRedis().get(key(uuid)) != null;
+        }
+        catch (RuntimeException exception) {
+            exception.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Waits until no server has unsaved changes of a player, checking every 100ms.
+     * No thread is blocked between checks.
+     * @param uuid UUID of the player.
+     * @return CompletableFuture with true once the player is not flagged, or false if they still were after "MySQL.saveWaitTimeout".
+     */
+    public CompletableFuture<Boolean> await(@NotNull final UUID uuid) {
+        return await(uuid, System.currentTimeMillis() + waitTimeout);
+    }
+
+    /**
+     * Checks a player's flag, and checks again after 100ms if it is still set.
+     * @param uuid UUID of the player.
+     * @param deadline When to stop waiting.
+     * @return CompletableFuture with whether the flag cleared before the deadline.
+     */
+    private CompletableFuture<Boolean> await(@NotNull final UUID uuid, final long deadline) {
+        return plugin.getExecutorManager().getRedisExecutor().supply(() -> isMarked(uuid)).thenCompose(marked -> {
+            if(!marked) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            if(System.currentTimeMillis() >= deadline) {
+                plugin.getLogger().warning("Another server did not finish saving " + uuid + " within " + waitTimeout + "ms. Loading them from MySQL anyway.");
+                return CompletableFuture.completedFuture(false);
+            }
+
+            return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)).thenCompose(ignored -> await(uuid, deadline));
+        });
+    }
+
+    /**
+     * Get the Redis key a player's flag is stored under.
+     * @param uuid UUID of the player.
+     * @return Redis key.
+     */
+    private String key(@NotNull final UUID uuid) {
+        return "jadedprofiles:" + uuid + ":unsaved";
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.worlds;
+
+import com.mongodb.client.gridfs.model.GridFSDownloadOptions;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import net.jadedmc.core.JadedMCPlugin;
+import net.jadedmc.utils.FileUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps extracted copies of downloaded worlds on disk, so loading the same map again skips MongoDB.
+ * Entries are keyed by the GridFS file id of the zip archive or snapshot manifest, which changes with every save,
+ * so a cached copy is never stale.
+ * Least recently used entries are removed once the cache grows past its size budget.
+ * Cached worlds are never loaded directly; they are templates that per-match copies are made from.
+ */
+public class WorldCache {
+    private static final int LOCK_STRIPES = 32;
+    private final JadedMCPlugin plugin;
+    private final WorldStorage worldStorage;
+    private final File cacheFolder;
+    private final boolean enabled;
+    private final long maxSize;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+    private final long refreshInterval;
+    private long size = 0;
+
+    /**
+     * Creates the cache, indexing any worlds cached by a previous run.
+     * @param plugin Instance of the plugin.
+     * @param worldStorage Storage to download worlds from.
+     */
+    public WorldCache(@NotNull final JadedMCPlugin plugin, @NotNull final WorldStorage worldStorage) {
+        this.plugin = plugin;
+        this.worldStorage = worldStorage;
+        this.cacheFolder = new File(plugin.getDataFolder(), "cache" + File.separator + "worlds");
+        this.enabled = plugin.getConfigManager().getConfig().getBoolean("WorldCache.Enabled", true);
+        this.maxSize = plugin.getConfigManager().getConfig().getLong("WorldCache.MaxSize", 2048) * 1024 * 1024;
+        this.refreshInterval = plugin.getConfigManager().getConfig().getLong("WorldCache.RefreshInterval", 30) * 1000;
+
+        for(int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            locks[stripe] = new ReentrantReadWriteLock();
+        }
+
+        if(enabled) {
+            loadEntries();
+        }
+    }
+
+    /**
+     * Copies a world into a folder, downloading it into the cache first if it is not already there.
+     * Cached worlds act as read-only templates: any number of copies can be made from one at the same time.
+     * Warning: Does so on whatever thread it is called from.
+     * @param worldName Name of the world.
+     * @param downloadOptions MongoDB download options, used to pick the revision.
+     * @param worldFolder Folder to copy the world to.
+     * @param fresh Whether to look the revision up in MongoDB instead of reusing a recent lookup.
+     *              Pass true when the world will be edited, so it is never an older save.
+     * @return Settings the world should be loaded with.
+     */
+    public WorldSettings copyWorld(@NotNull final String worldName, @NotNull final GridFSDownloadOptions downloadOptions, @NotNull final File worldFolder, final boolean fresh) {
+        final GridFSFile file = resolve(worldName, downloadOptions.getRevision(), fresh);
+        final String key = file.getObjectId().toHexString();
+        final File cachedWorld = new File(cacheFolder, key);
+        final ReentrantReadWriteLock lock = getLock(key);
+
+        lock.readLock().lock();
+        try {
+            if(!isCached(key, cachedWorld)) {
+                // Upgrades to the write lock to download the template. Read locks cannot be upgraded, so swap them.
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    if(!isCached(key, cachedWorld)) {
+                        download(file, cachedWorld);
+                    }
+                }
+                finally {
+                    // Downgrades back to a read lock, so other copies can start before this one finishes.
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
+            }
+            else {
+                Files.setLastModifiedTime(cachedWorld.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+            }
+
+            final FileUtils.Result result = FileUtils.copyDirectory(cachedWorld, worldFolder);
+            plugin.getLogger().fine("Copied world " + worldName + " from cache (" + result + ").");
+        }
+        catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        evict();
+        return worldStorage.getSettings(file);
+    }
+
+    /**
+     * Forgets every revision lookup of a world, so the next copy finds its newest revision in MongoDB.
+     * Should be called after the world is saved.
+     * @param worldName Name of the world.
+     */
+    public void forget(@NotNull final String worldName) {
+        templates.keySet().removeIf(templateName -> templateName.startsWith(worldName + "@"));
+    }
+
+    /**
+     * Get the maximum size of the cache.
+     * @return Size budget in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the current size of the cache.
+     * @return Size in bytes.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * Get the number of worlds currently cached.
+     * @return Number of cached worlds.
+     */
+    public int getCachedWorlds() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get if the cache is enabled.
+     * @return True if enabled, false if not.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Finds the stored file for a revision of a world.
+     * Results are reused for a short time, so back to back copies of the same map do not have to query MongoDB.
+     * @param worldName Name of the world.
+     * @param revision Revision to find.
+     * @param fresh Whether to skip any reused result.
+     * @return The stored world.
+     */
+    @NotNull
+    private GridFSFile resolve(@NotNull final String worldName, final int revision, final boolean fresh) {
+        final String templateName = worldName + "@" + revision;
+        final Template template = templates.get(templateName);
+        if(!fresh && template != null && System.currentTimeMillis() - template.resolvedAt() < refreshInterval) {
+            return template.file();
+        }
+
+        final GridFSFile file = worldStorage.findWorld(worldName, revision);
+        if(file == null) {
+            throw new RuntimeException("World " + worldName + " (revision " + revision + ") does not exist.");
+        }
+
+        // Forget lookups that have expired, so this does not grow with every revision ever loaded.
+        templates.values().removeIf(expired -> System.currentTimeMillis() - expired.resolvedAt() >= refreshInterval);
+        templates.put(templateName, new Template(file, System.currentTimeMillis()));
+        return file;
+    }
+
+    /**
+     * Get the lock guarding a cached world.
+     * Keys share a fixed set of locks, so the number of locks stays the same no matter how many worlds pass through the cache.
+     * @param key Cache key of the world.
+     * @return Lock of the world.
+     */
+    private ReentrantReadWriteLock getLock(@NotNull final String key) {
+        return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Check if a world is fully downloaded into the cache.
+     * @param key Cache key of the world.
+     * @param cachedWorld Folder of the cached world.
+     * @return True if cached, false if not.
+     */
+    private boolean isCached(@NotNull final String key, @NotNull final File cachedWorld) {
+        synchronized (entries) {
+            return entries.get(key) != null && cachedWorld.isDirectory();
+        }
+    }
+
+    /**
+     * Downloads a world into the cache.
+     * Extracts into a temporary folder first, so a failed download never looks like a cached world.
+     * @param file Stored world to download.
+     * @param cachedWorld Folder the cached world should be stored in.
+     * @throws IOException If the world could not be downloaded or extracted.
+     */
+    private void download(@NotNull final GridFSFile file, @NotNull final File cachedWorld) throws IOException {
+        final File tempFolder = new File(cacheFolder, cachedWorld.getName() + ".tmp");
+        if(tempFolder.exists()) {
+            FileUtils.deleteDirectory(tempFolder);
+        }
+
+        if(cachedWorld.exists()) {
+            FileUtils.deleteDirectory(cachedWorld);
+        }
+
+        try {
+            worldStorage.extract(file, tempFolder);
+        }
+        catch (IOException exception) {
+            FileUtils.deleteDirectory(tempFolder);
+            throw exception;
+        }
+
+        Files.move(tempFolder.toPath(), cachedWorld.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        final long worldSize = FileUtils.getSize(cachedWorld);
+        synchronized (entries) {
+            final Long previous = entries.put(cachedWorld.getName(), worldSize);
+            size += worldSize - (previous == null ? 0 : previous);
+        }
+    }
+
+    /**
+     * Removes the least recently used worlds until the cache fits in its size budget.
+     * Worlds that are currently being copied are skipped.
+     */
+    private void evict() {
+        final List<String> candidates;
+        synchronized (entries) {
+            if(size <= maxSize) {
+                return;
+            }
+
+            candidates = new ArrayList<>(entries.keySet());
+        }
+
+        for(final String key : candidates) {
+            if(getSize() <= maxSize) {
+                return;
+            }
+
+            final ReentrantReadWriteLock lock = getLock(key);
+            if(!lock.writeLock().tryLock()) {
+                continue;
+            }
+
+            try {
+                final Long worldSize;
+                synchronized (entries) {
+                    worldSize = entries.remove(key);
+                    if(worldSize != null) {
+                        size -= worldSize;
+                    }
+                }
+
+                FileUtils.deleteDirectory(new File(cacheFolder, key));
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Indexes worlds cached by a previous run, oldest first, and clears out interrupted downloads.
+     */
+    private void loadEntries() {
+        if(!cacheFolder.exists() && !cacheFolder.mkdirs()) {
+            plugin.getLogger().warning("Could not create the world cache folder.");
+            return;
+        }
+
+        final File[] folders = cacheFolder.listFiles(File::isDirectory);
+        if(folders == null) {
+            return;
+        }
+
+        Arrays.sort(folders, Comparator.comparingLong(File::lastModified));
+
+        for(final File folder : folders) {
+            if(folder.getName().endsWith(".tmp")) {
+                FileUtils.deleteDirectory(folder);
+                continue;
+            }
+
+            try {
+                final long worldSize = FileUtils.getSize(folder);
+                entries.put(folder.getName(), worldSize);
+                size += worldSize;
+            }
+            catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * The stored file a world name and revision last resolved to.
+     * @param file Stored world.
+     * @param resolvedAt When it was looked up.
+     */
+    private record Template(GridFSFile file, long resolvedAt) {}
+}
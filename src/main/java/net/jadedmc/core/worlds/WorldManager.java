@@ -25,33 +25,41 @@
 
 package net.jadedmc.core.worlds;
 
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
 import com.mongodb.client.gridfs.model.GridFSDownloadOptions;
-import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.gridfs.model.GridFSFile;
 import net.jadedmc.core.JadedMCPlugin;
 import net.jadedmc.core.worlds.generators.JadedChunkGenerator;
 import net.jadedmc.core.worlds.generators.VoidWorldGenerator;
 import net.jadedmc.utils.FileUtils;
-import org.bson.Document;
-import org.bson.types.ObjectId;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.WorldCreator;
-import org.zeroturnaround.zip.ZipUtil;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
 
 import java.io.*;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
 /**
  * This class manages the creation, loading, and saving, or worlds through MongoDB.
  */
 public class WorldManager {
+    private static final long WORLD_LOAD_TIMEOUT = 60;
+    private static final long PRELOAD_TICKET_TIMEOUT = 15 * 60;
     private final JadedMCPlugin plugin;
     private final Collection<JadedChunkGenerator> generators = new HashSet<>();
+    private final Map<UUID, BukkitTask> preloadTimeouts = new ConcurrentHashMap<>();
+    private final WorldCache worldCache;
+    private final WorldStorage worldStorage;
 
     /**
      * Creates the world manager.
@@ -59,6 +67,8 @@ public class WorldManager {
      */
     public WorldManager(final JadedMCPlugin plugin) {
         this.plugin = plugin;
+        this.worldStorage = new WorldStorage(plugin);
+        this.worldCache = new WorldCache(plugin, worldStorage);
 
         // Adds default generators.
         addGenerator(new VoidWorldGenerator());
@@ -102,25 +112,10 @@ public class WorldManager {
      */
     public CompletableFuture<World> copyWorld(String worldName, GridFSDownloadOptions downloadOptions, String copyName) {
         // Downloads the world from MongoDB.
-        CompletableFuture<File> worldDownload = CompletableFuture.supplyAsync(() -> {
-            // Get MongoDB connection.
-            MongoDatabase database = plugin.getMongoDB().database();
-            GridFSBucket gridFSBucket = GridFSBuckets.create(database, "storage");
-
-            // Downloads a file to an output stream
-            try (FileOutputStream streamToDownloadTo = new FileOutputStream(plugin.getServer().getWorldContainer() + "/" + worldName + ".zip")) {
-                gridFSBucket.downloadToStream(worldName + ".zip", streamToDownloadTo, downloadOptions);
-                streamToDownloadTo.flush();
-            }
-            catch (IOException exception) {
-                throw new RuntimeException(exception);
-            }
-
-            // Extracts the world from the zip file, and deletes the old zip file.
-            File zipFile = new File(plugin.getServer().getWorldContainer() + "/" + worldName + ".zip");
+        CompletableFuture<WorldSettings> worldDownload = plugin.getExecutorManager().getFileExecutor().supply(() -> {
+            // Extracts the world straight from MongoDB into its folder.
             File worldFolder = new File(plugin.getServer().getWorldContainer() + "/" + copyName);
-            ZipUtil.unpack(zipFile, worldFolder);
-            zipFile.delete();
+            WorldSettings settings = downloadWorld(worldName, downloadOptions, worldFolder, false);
 
             // Deletes the uid.dat file if present. This allows multiple copies of a world to be loaded at the same time.
             File uidDat = new File(worldFolder, "uid.dat");
@@ -128,44 +123,209 @@ public class WorldManager {
                 uidDat.delete();
             }
 
-            return worldFolder;
+            return settings;
         });
 
         // Loads the world.
-        return worldDownload.thenCompose(file -> CompletableFuture.supplyAsync(() -> {
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                WorldCreator worldCreator = new WorldCreator(copyName);
-                // TODO: Store proper generator to use in the file metadata.
-                worldCreator.generator(new VoidWorldGenerator());
-                Bukkit.createWorld(worldCreator);
-            });
+        return worldDownload.thenCompose(settings -> createWorld(copyName, settings, false));
+    }
 
-            // Wait for the world to be loaded.
-            boolean loaded = false;
-            World world = null;
-            while(!loaded) {
-                try {
-                    Thread.sleep(60);
-                }
-                catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+    /**
+     * Loads a copy of a world from MongoDB, and preloads the chunks around its spawn.
+     * The future completes once those chunks are loaded, so players arriving do not cause synchronous chunk loads.
+     * The chunks stay loaded until releasePreloadedChunks is called.
+     * @param worldName Name of the world to load.
+     * @param copyName Name of the copy to make.
+     * @param radius Radius, in chunks, to preload around the spawn.
+     * @return Copied world.
+     */
+    public CompletableFuture<World> copyWorld(String worldName, String copyName, int radius) {
+        return copyWorld(worldName, new GridFSDownloadOptions(), copyName, radius, Collections.emptyList());
+    }
+
+    /**
+     * Loads a copy of a world from MongoDB, and preloads the chunks around the given points.
+     * The future completes once those chunks are loaded, so players arriving do not cause synchronous chunk loads.
+     * The chunks stay loaded until releasePreloadedChunks is called.
+     * @param worldName Name of the world to load.
+     * @param copyName Name of the copy to make.
+     * @param radius Radius, in chunks, to preload around each point.
+     * @param points Block positions to preload around. If empty, the spawn of the world is used.
+     * @return Copied world.
+     */
+    public CompletableFuture<World> copyWorld(String worldName, String copyName, int radius, Collection<Vector> points) {
+        return copyWorld(worldName, new GridFSDownloadOptions(), copyName, radius, points);
+    }
+
+    /**
+     * Loads a copy of a world from MongoDB given download options, and preloads the chunks around the given points.
+     * The chunks stay loaded until releasePreloadedChunks is called.
+     * @param worldName Name of the world.
+     * @param downloadOptions MongoDB download options.
+     * @param copyName Name of the copy to make.
+     * @param radius Radius, in chunks, to preload around each point.
+     * @param points Block positions to preload around. If empty, the spawn of the world is used.
+     * @return Copied world.
+     */
+    public CompletableFuture<World> copyWorld(String worldName, GridFSDownloadOptions downloadOptions, String copyName, int radius, Collection<Vector> points) {
+        return copyWorld(worldName, downloadOptions, copyName).thenCompose(world -> preloadChunks(world, radius, points));
+    }
+
+    /**
+     * Loads the chunks around the given points asynchronously, and holds them with plugin chunk tickets.
+     * The tickets are held until releasePreloadedChunks is called, or removed after 15 minutes in case it never is.
+     * @param world World to load chunks in.
+     * @param radius Radius, in chunks, to load around each point.
+     * @param points Block positions to load around. If empty, the spawn of the world is used.
+     * @return The world, once every chunk is loaded.
+     */
+    private CompletableFuture<World> preloadChunks(World world, int radius, Collection<Vector> points) {
+        final CompletableFuture<World> future = new CompletableFuture<>();
+
+        try {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                final Collection<Vector> centers = points.isEmpty() ? Collections.singletonList(getSpawn(world).toVector()) : points;
+                final Set<Long> requested = new HashSet<>();
+                final List<CompletableFuture<Chunk>> loads = new ArrayList<>();
+
+                for(Vector center : centers) {
+                    final int centerX = center.getBlockX() >> 4;
+                    final int centerZ = center.getBlockZ() >> 4;
+
+                    for(int x = centerX - radius; x <= centerX + radius; x++) {
+                        for(int z = centerZ - radius; z <= centerZ + radius; z++) {
+                            // Skips chunks already requested by an overlapping point.
+                            if(!requested.add(((long) x << 32) | (z & 0xFFFFFFFFL))) {
+                                continue;
+                            }
+
+                            loads.add(world.getChunkAtAsync(x, z).thenApply(chunk -> {
+                                chunk.addPluginChunkTicket(plugin);
+                                return chunk;
+                            }));
+                        }
+                    }
                 }
 
-                for(World w : Bukkit.getWorlds()) {
-                    if(w.getName().equals(copyName)) {
-                        loaded = true;
-                        world = w;
-                        break;
+                CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).whenComplete((result, exception) -> {
+                    if(exception != null) {
+                        future.completeExceptionally(exception);
+                        return;
                     }
+
+                    future.complete(world);
+                });
+
+                // Safety net, in case the match never releases the chunks itself.
+                // Only holds the world's UUID, so a world that is unloaded in the meantime can still be garbage collected.
+                final UUID worldUID = world.getUID();
+                final BukkitTask timeout = plugin.getServer().getScheduler().runTaskLater(plugin, () -> releasePreloadedChunks(worldUID), PRELOAD_TICKET_TIMEOUT * 20);
+
+                final BukkitTask previousTimeout = preloadTimeouts.put(worldUID, timeout);
+                if(previousTimeout != null) {
+                    previousTimeout.cancel();
                 }
+            });
+        }
+        catch (IllegalPluginAccessException exception) {
+            future.completeExceptionally(exception);
+        }
+
+        return future.orTimeout(WORLD_LOAD_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Lets chunks preloaded by copyWorld unload normally again, and cancels the safety net that would have done so.
+     * Should be called once players are in the world, and are holding the chunks around them themselves.
+     * @param world World to release the chunks of.
+     */
+    public void releasePreloadedChunks(World world) {
+        final UUID worldUID = world.getUID();
+
+        if(!Bukkit.isPrimaryThread()) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> releasePreloadedChunks(worldUID));
+            return;
+        }
+
+        releasePreloadedChunks(worldUID);
+    }
+
+    /**
+     * Releases the chunks preloaded in a world, if it is still loaded.
+     * Must be called on the main thread.
+     * @param worldUID UUID of the world.
+     */
+    private void releasePreloadedChunks(UUID worldUID) {
+        final BukkitTask timeout = preloadTimeouts.remove(worldUID);
+        if(timeout != null) {
+            timeout.cancel();
+        }
+
+        final World loadedWorld = Bukkit.getWorld(worldUID);
+        if(loadedWorld != null) {
+            loadedWorld.removePluginChunkTickets(plugin);
+        }
+    }
+
+    /**
+     * Get the spawn of a world.
+     * Uses the generator's fixed spawn location if it is a JadedChunkGenerator.
+     * @param world World to get the spawn of.
+     * @return Spawn location.
+     */
+    private Location getSpawn(World world) {
+        if(world.getGenerator() instanceof JadedChunkGenerator generator) {
+            final Location spawn = generator.getFixedSpawnLocation(world, new Random());
+            if(spawn != null) {
+                return spawn;
             }
+        }
 
-            // Disable autosave.
-            world.setAutoSave(false);
+        return world.getSpawnLocation();
+    }
+
+    /**
+     * Loads a downloaded world on the main thread.
+     * The future is completed by the task that creates the world, and fails if it is not created in time.
+     * @param worldName Name of the world folder to load.
+     * @param settings Settings the world was saved with.
+     * @param autoSave Whether the world should be saved automatically.
+     * @return Loaded world.
+     */
+    private CompletableFuture<World> createWorld(String worldName, WorldSettings settings, boolean autoSave) {
+        final CompletableFuture<World> future = new CompletableFuture<>();
+
+        try {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                try {
+                    WorldCreator worldCreator = new WorldCreator(worldName)
+                            .generator(getGenerator(settings.generator()))
+                            .environment(settings.environment())
+                            .seed(settings.seed());
+                    World world = Bukkit.createWorld(worldCreator);
+
+                    if(world == null) {
+                        future.completeExceptionally(new IllegalStateException("World " + worldName + " could not be created."));
+                        return;
+                    }
 
-            // Returns the resulting world.
-            return world;
-        }));
+                    if(!autoSave) {
+                        world.setAutoSave(false);
+                    }
+
+                    future.complete(world);
+                }
+                catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        }
+        catch (IllegalPluginAccessException exception) {
+            // The plugin was disabled while the world was downloading.
+            future.completeExceptionally(exception);
+        }
+
+        return future.orTimeout(WORLD_LOAD_TIMEOUT, TimeUnit.SECONDS);
     }
 
     /**
@@ -176,6 +336,16 @@ public class WorldManager {
         return downloadWorldSync(worldName, new GridFSDownloadOptions());
     }
 
+    /**
+     * Downloads a world from MongoDB into a given folder.
+     * @param worldName Name of the world to download.
+     * @param worldFolder Folder to download the world into.
+     */
+    public File downloadWorldSync(String worldName, File worldFolder) {
+        downloadWorld(worldName, new GridFSDownloadOptions(), worldFolder, true);
+        return worldFolder;
+    }
+
     /**
      * Downloads a world from MongoDB given a world name and revision number.
      * @param worldName Name of the world to download.
@@ -191,31 +361,47 @@ public class WorldManager {
      * @param downloadOptions MongoDB download options.
      */
     public File downloadWorldSync(String worldName, GridFSDownloadOptions downloadOptions) {
-        // Get MongoDB connection.
-        MongoDatabase database = plugin.getMongoDB().database();
-        GridFSBucket gridFSBucket = GridFSBuckets.create(database, "storage");
-
-        // Downloads a file to an output stream
-        try (FileOutputStream streamToDownloadTo = new FileOutputStream(plugin.getServer().getWorldContainer() + "/" + worldName + ".zip")) {
-            gridFSBucket.downloadToStream(worldName + ".zip", streamToDownloadTo, downloadOptions);
-            streamToDownloadTo.flush();
+        File worldFolder = new File(plugin.getServer().getWorldContainer() + "/" + worldName);
+        downloadWorld(worldName, downloadOptions, worldFolder, true);
+        return worldFolder;
+    }
+
+    /**
+     * Downloads a world from MongoDB, extracting it into a folder as it downloads.
+     * Uses the local world cache instead when it is enabled.
+     * Warning: Does so on whatever thread it is called from.
+     * @param worldName Name of the world to download.
+     * @param downloadOptions MongoDB download options.
+     * @param worldFolder Folder to extract the world into.
+     * @param fresh Whether the cache must look the revision up again. Used for worlds that can be edited and saved.
+     * @return Settings the world should be loaded with.
+     */
+    private WorldSettings downloadWorld(String worldName, GridFSDownloadOptions downloadOptions, File worldFolder, boolean fresh) {
+        if(worldCache.isEnabled()) {
+            return worldCache.copyWorld(worldName, downloadOptions, worldFolder, fresh);
+        }
+
+        GridFSFile file = worldStorage.findWorld(worldName, downloadOptions.getRevision());
+        if(file == null) {
+            throw new RuntimeException("World " + worldName + " (revision " + downloadOptions.getRevision() + ") does not exist.");
+        }
+
+        try {
+            worldStorage.extract(file, worldFolder);
         }
         catch (IOException exception) {
+            // Don't leave a half extracted world behind.
+            FileUtils.deleteDirectory(worldFolder);
             throw new RuntimeException(exception);
         }
 
-        // Extracts the world from the zip file, and deletes the old zip file.
-        File zipFile = new File(plugin.getServer().getWorldContainer() + "/" + worldName + ".zip");
-        File worldFolder = new File(plugin.getServer().getWorldContainer() + "/" + worldName);
-        ZipUtil.unpack(zipFile, worldFolder);
-        zipFile.delete();
-
-        return worldFolder;
+        return worldStorage.getSettings(file);
     }
 
     /**
      * Gets a generator from its id.
      * Returns a new void generator if not found.
+     * Used to load saved worlds with the generator stored in their metadata.
      * @param id id of the generator.
      * @return Generator corresponding to that id.
      */
@@ -237,6 +423,22 @@ public class WorldManager {
         return generators;
     }
 
+    /**
+     * Get the local cache of downloaded worlds.
+     * @return World cache.
+     */
+    public WorldCache getWorldCache() {
+        return worldCache;
+    }
+
+    /**
+     * Get the storage worlds are saved to and loaded from.
+     * @return World storage.
+     */
+    public WorldStorage getWorldStorage() {
+        return worldStorage;
+    }
+
     /**
      * Loads a world from MongoDB given a world name.
      * @param worldName Name of the world to load.
@@ -264,25 +466,11 @@ public class WorldManager {
      */
     public CompletableFuture<World> loadWorld(String worldName, GridFSDownloadOptions downloadOptions) {
         // Downloads the world from MongoDB.
-        CompletableFuture<File> worldDownload = CompletableFuture.supplyAsync(() -> {
-            // Get MongoDB connection.
-            MongoDatabase database = plugin.getMongoDB().database();
-            GridFSBucket gridFSBucket = GridFSBuckets.create(database, "storage");
-
-            // Downloads a file to an output stream
-            try (FileOutputStream streamToDownloadTo = new FileOutputStream(plugin.getServer().getWorldContainer() + "/" + worldName + ".zip")) {
-                gridFSBucket.downloadToStream(worldName + ".zip", streamToDownloadTo, downloadOptions);
-                streamToDownloadTo.flush();
-            }
-            catch (IOException exception) {
-                throw new RuntimeException(exception);
-            }
-
-            // Extracts the world from the zip file, and deletes the old zip file.
-            File zipFile = new File(plugin.getServer().getWorldContainer() + "/" + worldName + ".zip");
+        CompletableFuture<WorldSettings> worldDownload = plugin.getExecutorManager().getFileExecutor().supply(() -> {
+            // Extracts the world straight from MongoDB into its folder.
             File worldFolder = new File(plugin.getServer().getWorldContainer() + "/" + worldName);
-            ZipUtil.unpack(zipFile, worldFolder);
-            zipFile.delete();
+            // Loaded worlds are the ones that get edited, so always load the newest save.
+            WorldSettings settings = downloadWorld(worldName, downloadOptions, worldFolder, true);
 
             // Deletes the uid.dat file if present. This allows multiple copies of a world to be loaded at the same time.
             File uidDat = new File(worldFolder, "uid.dat");
@@ -290,75 +478,73 @@ public class WorldManager {
                 uidDat.delete();
             }
 
-            return worldFolder;
+            return settings;
         });
 
         // Loads the world.
-        return worldDownload.thenCompose(file -> CompletableFuture.supplyAsync(() -> {
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                WorldCreator worldCreator = new WorldCreator(worldName);
-                // TODO: Store proper generator to use in the file metadata.
-                worldCreator.generator(new VoidWorldGenerator());
-                Bukkit.createWorld(worldCreator);
-            });
-
-            // Wait for the world to be loaded.
-            boolean loaded = false;
-            World world = null;
-            while(!loaded) {
-                try {
-                    Thread.sleep(60);
-                }
-                catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+        return worldDownload.thenCompose(settings -> createWorld(worldName, settings, true));
+    }
 
-                for(World w : Bukkit.getWorlds()) {
-                    if(w.getName().equals(worldName)) {
-                        loaded = true;
-                        world = w;
-                        break;
-                    }
-                }
-            }
+    /**
+     * Saves a world folder to MongoDB as a new snapshot revision.
+     * <strong>Warning:</strong> Does not unload the world. Do that before using.
+     * This is done to allow arena editors to work.
+     * @param worldFolder Folder to save
+     * @param name Name to save the world as.
+     * @return CompletableFuture with the number of bytes uploaded.
+     */
+    public CompletableFuture<Long> saveWorld(File worldFolder, String name) {
+        return saveWorld(worldFolder, name, WorldSettings.DEFAULT);
+    }
 
-            // Returns the resulting world.
-            return world;
-        }));
+    /**
+     * Saves a world folder to MongoDB as a new snapshot revision, along with the settings needed to load it again.
+     * <strong>Warning:</strong> Does not unload the world. Do that before using.
+     * @param worldFolder Folder to save
+     * @param name Name to save the world as.
+     * @param settings Settings of the world. Get these with WorldSettings.fromWorld before unloading it.
+     * @return CompletableFuture with the number of bytes uploaded.
+     */
+    public CompletableFuture<Long> saveWorld(File worldFolder, String name, WorldSettings settings) {
+        return saveWorld(worldFolder, name, settings, message -> {});
     }
 
     /**
-     * Saves a world folder to MongoDB.
+     * Saves a world folder to MongoDB as a new snapshot revision, reporting progress as it goes.
+     * The world folder is only deleted once the snapshot has been uploaded and verified.
+     * If anything fails, the folder is kept and the future completes exceptionally.
      * <strong>Warning:</strong> Does not unload the world. Do that before using.
-     * This is done to allow arena editors to work.
      * @param worldFolder Folder to save
      * @param name Name to save the world as.
+     * @param settings Settings of the world. Get these with WorldSettings.fromWorld before unloading it.
+     * @param progress Receives a message as each stage starts. Called from the file executor.
+     * @return CompletableFuture with the number of bytes uploaded.
      */
-    public void saveWorld(File worldFolder, String name) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            File zipFile = new File(worldFolder.getParent(), name + ".zip");
-            ZipUtil.pack(worldFolder, zipFile);
-
-            MongoDatabase database = plugin.getMongoDB().database();
-            GridFSBucket gridFSBucket = GridFSBuckets.create(database, "storage");
-
-
-            try (InputStream streamToUploadFrom = new FileInputStream(zipFile) ) {
-                // Defines options that specify configuration information for files uploaded to the bucket
-                GridFSUploadOptions options = new GridFSUploadOptions()
-                        .chunkSizeBytes(1048576)
-                        .metadata(new Document("type", "zip archive"));
-                // Uploads a file from an input stream to the GridFS bucket
-                ObjectId fileId = gridFSBucket.uploadFromStream(name + ".zip", streamToUploadFrom, options);
-                // Prints the "_id" value of the uploaded file
-                System.out.println("The file id of the uploaded file is: " + fileId.toHexString());
+    public CompletableFuture<Long> saveWorld(File worldFolder, String name, WorldSettings settings, Consumer<String> progress) {
+        return plugin.getExecutorManager().getFileExecutor().supply(() -> {
+            final long start = System.currentTimeMillis();
+            final long uploaded;
+
+            try {
+                uploaded = worldStorage.saveSnapshot(worldFolder, name, settings, progress);
+                worldCache.forget(name);
+                plugin.getLogger().info("Saved world " + name + " in " + (System.currentTimeMillis() - start) + "ms (" + (uploaded / 1024) + " KB of changed files uploaded).");
             }
             catch (IOException exception) {
-                throw new RuntimeException(exception);
+                // Keeps the world folder, so the changes are not lost.
+                plugin.getLogger().log(Level.SEVERE, "Could not save world " + name + ".", exception);
+                throw new CompletionException(exception);
             }
 
-            FileUtils.deleteDirectory(worldFolder);
-            zipFile.delete();
+            progress.accept("Cleaning up...");
+            try {
+                plugin.getLogger().info("Cleaned up world " + name + " (" + FileUtils.delete(worldFolder) + ").");
+            }
+            catch (IOException exception) {
+                plugin.getLogger().log(Level.WARNING, "Could not fully delete world " + name + " after saving.", exception);
+            }
+
+            return uploaded;
         });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.worlds;
+
+import net.jadedmc.core.worlds.generators.JadedChunkGenerator;
+import org.bson.Document;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Settings needed to load a saved world the same way it was created.
+ * Stored in the GridFS metadata of every saved world.
+ * @param generator ID of the JadedChunkGenerator the world uses.
+ * @param environment Environment of the world.
+ * @param seed Seed of the world.
+ */
+public record WorldSettings(@NotNull String generator, @NotNull World.Environment environment, long seed) {
+
+    /**
+     * Settings used for worlds saved without any, such as old zip archives.
+     */
+    public static final WorldSettings DEFAULT = new WorldSettings("void", World.Environment.NORMAL, 0);
+
+    /**
+     * Get the settings of a loaded world.
+     * Worlds not using a JadedChunkGenerator are saved as using the void generator.
+     * @param world World to get the settings of.
+     * @return Settings of the world.
+     */
+    public static WorldSettings fromWorld(@NotNull final World world) {
+        final String generator = world.getGenerator() instanceof JadedChunkGenerator jadedChunkGenerator ? jadedChunkGenerator.getId() : DEFAULT.generator();
+        return new WorldSettings(generator, world.getEnvironment(), world.getSeed());
+    }
+
+    /**
+     * Read settings from GridFS file metadata.
+     * Anything missing falls back to the default settings.
+     * @param metadata Metadata to read.
+     * @return Settings stored in the metadata.
+     */
+    public static WorldSettings fromDocument(@Nullable final Document metadata) {
+        if(metadata == null) {
+            return DEFAULT;
+        }
+
+        World.Environment environment;
+        try {
+            environment = World.Environment.valueOf(metadata.get("environment", DEFAULT.environment().name()));
+        }
+        catch (IllegalArgumentException exception) {
+            environment = DEFAULT.environment();
+        }
+
+        final Number seed = metadata.get("seed", Number.class);
+        return new WorldSettings(metadata.get("generator", DEFAULT.generator()), environment, seed == null ? DEFAULT.seed() : seed.longValue());
+    }
+
+    /**
+     * Write the settings into a GridFS metadata document.
+     * @param metadata Document to write to.
+     * @return The same document.
+     */
+    public Document appendTo(@NotNull final Document metadata) {
+        return metadata.append("generator", generator)
+                .append("environment", environment.name())
+                .append("seed", seed);
+    }
+}
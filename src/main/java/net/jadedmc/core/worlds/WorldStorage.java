@@ -0,0 +1,427 @@
+/*
+ * This file is part of JadedMC, licensed under the MIT License.
+ *
+ * Copyright (c) JadedMC
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.jadedmc.core.worlds;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import net.jadedmc.core.JadedMCPlugin;
+import net.jadedmc.utils.FileUtils;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes worlds stored in MongoDB GridFS.
+ * Worlds are stored in the "storage" bucket in one of two formats:
+ * <ul>
+ *     <li><b>name.zip</b>: The whole world folder as a zip archive.</li>
+ *     <li><b>name.snapshot</b>: A manifest listing every file in the world and the SHA-256 hash of its contents.
+ *     The contents are stored once per hash, deflate compressed, in the "snapshots" bucket.
+ *     Saving only uploads files whose hash is not already stored, so unchanged region files are never uploaded twice.
+ *     Every upload is read back and its SHA-256 compared to its name, and only contents that passed are marked verified and reused.</li>
+ * </ul>
+ * Both formats share one revision history, ordered by upload date.
+ * Snapshots also store the world's WorldSettings in their metadata.
+ * <p>
+ * Deduplication is per file, not per chunk. Editing a single chunk uploads its whole region file again (up to a few MB),
+ * and level.dat changes on every save. A save uploads one region file for every 32x32 chunk area touched since the last
+ * save, so it only stays in the kilobytes when no region files changed at all.
+ */
+public class WorldStorage {
+    private static final List<String> IGNORED_FILES = Arrays.asList("uid.dat", "session.lock");
+    private static final int UPLOAD_ATTEMPTS = 3;
+    private final JadedMCPlugin plugin;
+
+    /**
+     * Creates the world storage.
+     * @param plugin Instance of the plugin.
+     */
+    public WorldStorage(@NotNull final JadedMCPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Extracts a stored world into a folder, in whichever format it was saved.
+     * Warning: Does so on whatever thread it is called from.
+     * @param file Stored world, from findWorld.
+     * @param worldFolder Folder to extract the world into.
+     * @throws IOException If the world could not be downloaded or extracted.
+     */
+    public void extract(@NotNull final GridFSFile file, @NotNull final File worldFolder) throws IOException {
+        try {
+            if(file.getFilename().endsWith(".snapshot")) {
+                restoreSnapshot(file, worldFolder);
+                return;
+            }
+
+            try(GridFSDownloadStream downloadStream = getStorageBucket().openDownloadStream(file.getObjectId())) {
+                FileUtils.unzip(downloadStream, worldFolder);
+            }
+        }
+        catch (MongoException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Finds the stored file for a given revision of a world.
+     * Revisions follow GridFS: 0 is the first save, 1 the second, and so on; -1 is the newest, -2 the one before it.
+     * @param worldName Name of the world.
+     * @param revision Revision to find.
+     * @return The stored world, or null if it does not exist.
+     */
+    @Nullable
+    public GridFSFile findWorld(@NotNull final String worldName, final int revision) {
+        final GridFSBucket bucket = getStorageBucket();
+        final List<String> fileNames = Arrays.asList(worldName + ".zip", worldName + ".snapshot");
+
+        if(revision >= 0) {
+            return bucket.find(Filters.in("filename", fileNames)).sort(Sorts.ascending("uploadDate")).skip(revision).limit(1).first();
+        }
+
+        return bucket.find(Filters.in("filename", fileNames)).sort(Sorts.descending("uploadDate")).skip(-revision - 1).limit(1).first();
+    }
+
+    /**
+     * Saves a world folder as a new snapshot revision.
+     * Only files whose contents are not already stored are uploaded.
+     * Runs in stages (hash, upload, verify, manifest), reporting each one to the given consumer.
+     * Uploads are retried, and read back and checked against their SHA-256, before the manifest is written.
+     * Warning: Does so on whatever thread it is called from.
+     * @param worldFolder Folder of the world to save.
+     * @param worldName Name to save the world as.
+     * @param settings Settings the world should be loaded with.
+     * @param progress Receives a message as each stage starts.
+     * @return Number of bytes uploaded, before compression.
+     * @throws IOException If the world could not be read, uploaded, or verified.
+     */
+    public long saveSnapshot(@NotNull final File worldFolder, @NotNull final String worldName, @NotNull final WorldSettings settings, @NotNull final Consumer<String> progress) throws IOException {
+        final Path root = worldFolder.toPath();
+        final List<Path> files;
+        try(Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).filter(path -> !IGNORED_FILES.contains(path.getFileName().toString())).toList();
+        }
+
+        // Hashes every file in the world.
+        progress.accept("Hashing " + files.size() + " files...");
+        final Map<String, String> hashes = new LinkedHashMap<>();
+        final List<Document> entries = new ArrayList<>();
+        for(final Path file : files) {
+            final String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+            final String hash = hash(file);
+            hashes.put(hash, path);
+            entries.add(new Document("path", path).append("hash", hash).append("size", Files.size(file)));
+        }
+
+        try {
+            final GridFSBucket snapshots = getSnapshotBucket();
+
+            // Finds which file contents are already stored. Contents that were never verified are uploaded again.
+            final List<String> missing = new ArrayList<>(hashes.keySet());
+            missing.removeAll(findStoredHashes(snapshots, hashes.keySet()));
+
+            // Uploads the new contents.
+            progress.accept("Uploading " + missing.size() + " changed files (" + (hashes.size() - missing.size()) + " unchanged)...");
+            long uploaded = 0;
+            int lastReported = 0;
+            for(int i = 0; i < missing.size(); i++) {
+                final String hash = missing.get(i);
+                final Path file = root.resolve(hashes.get(hash));
+                final GridFSUploadOptions options = new GridFSUploadOptions()
+                        .chunkSizeBytes(1048576)
+                        .metadata(new Document("compression", "deflate").append("size", Files.size(file)));
+                upload(snapshots, hash, () -> new DeflaterInputStream(new BufferedInputStream(Files.newInputStream(file), 65536), new Deflater(Deflater.BEST_SPEED)), options, true, hash);
+                uploaded += Files.size(file);
+
+                // Reports roughly every 25%.
+                final int percent = (i + 1) * 100 / missing.size();
+                if(percent - lastReported >= 25 && i + 1 < missing.size()) {
+                    progress.accept("Uploaded " + (i + 1) + "/" + missing.size() + " files (" + percent + "%).");
+                    lastReported = percent;
+                }
+            }
+
+            // Makes sure every file the manifest points to is stored and verified before writing it.
+            progress.accept("Verifying upload...");
+            final Set<String> stored = findStoredHashes(snapshots, hashes.keySet());
+            if(stored.size() != hashes.size()) {
+                throw new IOException((hashes.size() - stored.size()) + " file(s) are missing or unverified in storage after uploading.");
+            }
+
+            // Uploads the manifest last, so a failed save never points to missing contents.
+            progress.accept("Writing snapshot...");
+            final Document manifest = settings.appendTo(new Document("format", 1)).append("files", entries);
+            final byte[] manifestBytes = manifest.toJson().getBytes(StandardCharsets.UTF_8);
+            final GridFSUploadOptions options = new GridFSUploadOptions()
+                    .metadata(settings.appendTo(new Document("type", "snapshot").append("files", entries.size())));
+            upload(getStorageBucket(), worldName + ".snapshot", () -> new ByteArrayInputStream(manifestBytes), options, false, hash(new ByteArrayInputStream(manifestBytes)));
+
+            return uploaded;
+        }
+        catch (MongoException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Get the settings a stored world should be loaded with.
+     * @param file Stored world, from findWorld.
+     * @return Settings of the world.
+     */
+    public WorldSettings getSettings(@NotNull final GridFSFile file) {
+        return WorldSettings.fromDocument(file.getMetadata());
+    }
+
+    /**
+     * Get the bucket worlds and snapshot manifests are stored in.
+     * @return Storage bucket.
+     */
+    public GridFSBucket getStorageBucket() {
+        return GridFSBuckets.create(plugin.getMongoDB().database(), "storage");
+    }
+
+    /**
+     * Get the bucket snapshot file contents are stored in.
+     * @return Snapshot bucket.
+     */
+    public GridFSBucket getSnapshotBucket() {
+        return GridFSBuckets.create(plugin.getMongoDB().database(), "snapshots");
+    }
+
+    /**
+     * Writes every file listed in a snapshot manifest into a folder.
+     * @param file Manifest to restore.
+     * @param worldFolder Folder to restore the world into.
+     * @throws IOException If a file could not be downloaded, or is outside the folder.
+     */
+    private void restoreSnapshot(@NotNull final GridFSFile file, @NotNull final File worldFolder) throws IOException {
+        final ByteArrayOutputStream manifestStream = new ByteArrayOutputStream();
+        getStorageBucket().downloadToStream(file.getObjectId(), manifestStream);
+        final Document manifest = Document.parse(manifestStream.toString(StandardCharsets.UTF_8));
+
+        final Path root = worldFolder.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        final GridFSBucket snapshots = getSnapshotBucket();
+        for(final Document entry : manifest.getList("files", Document.class)) {
+            final Path target = root.resolve(entry.getString("path")).normalize();
+
+            // Refuse entries that would be written outside the world folder.
+            if(!target.startsWith(root)) {
+                throw new IOException("Snapshot entry " + entry.getString("path") + " is outside of the world folder.");
+            }
+
+            // Prefers the newest verified copy of the contents, falling back to older unverified uploads.
+            final GridFSFile contents = snapshots.find(Filters.eq("filename", entry.getString("hash"))).sort(Sorts.orderBy(Sorts.descending("metadata.verified"), Sorts.descending("uploadDate"))).limit(1).first();
+            if(contents == null) {
+                throw new IOException("Snapshot contents of " + entry.getString("path") + " are missing from storage.");
+            }
+
+            Files.createDirectories(target.getParent());
+            try(InputStream inputStream = new InflaterInputStream(snapshots.openDownloadStream(contents.getObjectId()), new Inflater(), 65536)) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Get which of the given hashes already have verified contents stored.
+     * @param snapshots Snapshot bucket.
+     * @param hashes Hashes to look for.
+     * @return Hashes that are stored and verified.
+     */
+    private Set<String> findStoredHashes(@NotNull final GridFSBucket snapshots, @NotNull final Collection<String> hashes) {
+        final Set<String> stored = new HashSet<>();
+        for(final GridFSFile storedFile : snapshots.find(Filters.and(Filters.in("filename", hashes), Filters.eq("metadata.verified", true)))) {
+            stored.add(storedFile.getFilename());
+        }
+
+        return stored;
+    }
+
+    /**
+     * Uploads a file, then reads it back and checks it against the expected SHA-256 hash.
+     * Files that pass are marked verified in their metadata. Failed attempts are deleted and retried, waiting a little longer each time.
+     * @param bucket Bucket to upload to.
+     * @param fileName Name of the file.
+     * @param source Opens a fresh stream of the contents for each attempt.
+     * @param options Upload options.
+     * @param deflated Whether the stored contents are deflate compressed, and must be inflated before hashing.
+     * @param expectedHash SHA-256 hash the stored contents must have once read back.
+     * @throws IOException If every attempt failed.
+     */
+    private void upload(@NotNull final GridFSBucket bucket, @NotNull final String fileName, @NotNull final StreamSource source, @NotNull final GridFSUploadOptions options, final boolean deflated, @NotNull final String expectedHash) throws IOException {
+        for(int attempt = 1; ; attempt++) {
+            ObjectId fileId = null;
+
+            try(CountingInputStream inputStream = new CountingInputStream(source.open())) {
+                fileId = bucket.uploadFromStream(fileName, inputStream, options);
+
+                final GridFSFile uploadedFile = bucket.find(Filters.eq("_id", fileId)).first();
+                if(uploadedFile == null || uploadedFile.getLength() != inputStream.getCount()) {
+                    throw new IOException("Stored size of " + fileName + " does not match what was uploaded.");
+                }
+
+                // Reads the stored file back, so a corrupted upload of the right length is still caught.
+                final String storedHash;
+                try(InputStream storedStream = deflated ? new InflaterInputStream(bucket.openDownloadStream(fileId), new Inflater(), 65536) : bucket.openDownloadStream(fileId)) {
+                    storedHash = hash(storedStream);
+                }
+
+                if(!storedHash.equals(expectedHash)) {
+                    throw new IOException("Stored contents of " + fileName + " do not match what was uploaded (SHA-256 " + storedHash + ", expected " + expectedHash + ").");
+                }
+
+                plugin.getMongoDB().database().getCollection(bucket.getBucketName() + ".files").updateOne(Filters.eq("_id", fileId), Updates.set("metadata.verified", true));
+                return;
+            }
+            catch (IOException | MongoException exception) {
+                // Removes the broken upload, so it is never read.
+                if(fileId != null) {
+                    try {
+                        bucket.delete(fileId);
+                    }
+                    catch (MongoException deleteException) {
+                        exception.addSuppressed(deleteException);
+                    }
+                }
+
+                if(attempt >= UPLOAD_ATTEMPTS) {
+                    throw exception instanceof IOException ? (IOException) exception : new IOException(exception);
+                }
+
+                plugin.getLogger().warning("Upload of " + fileName + " failed (attempt " + attempt + "/" + UPLOAD_ATTEMPTS + "): " + exception.getMessage());
+
+                try {
+                    Thread.sleep(attempt * 1000L);
+                }
+                catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while uploading " + fileName + ".", interruptedException);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the SHA-256 hash of a file's contents.
+     * @param file File to hash.
+     * @return Hex encoded hash.
+     * @throws IOException If the file could not be read.
+     */
+    private static String hash(@NotNull final Path file) throws IOException {
+        try(InputStream inputStream = Files.newInputStream(file)) {
+            return hash(inputStream);
+        }
+    }
+
+    /**
+     * Get the SHA-256 hash of everything left in a stream.
+     * @param inputStream Stream to hash. Not closed.
+     * @return Hex encoded hash.
+     * @throws IOException If the stream could not be read.
+     */
+    private static String hash(@NotNull final InputStream inputStream) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        new DigestInputStream(inputStream, digest).transferTo(OutputStream.nullOutputStream());
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Opens the contents of a file to upload.
+     */
+    @FunctionalInterface
+    private interface StreamSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Counts the bytes read through it, so uploads can be checked against the stored length.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        private CountingInputStream(@NotNull final InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if(value != -1) {
+                count++;
+            }
+
+            return value;
+        }
+
+        @Override
+        public int read(byte @NotNull [] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if(read > 0) {
+                count += read;
+            }
+
+            return read;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
@@ -26,69 +26,287 @@
 package net.jadedmc.utils;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * A collection of utilities related to file management.
  */
 public class FileUtils {
+    private static final List<String> IGNORED_FILES = Arrays.asList("uid.dat", "session.lock");
+    private static ForkJoinPool copyPool = null;
+
     /**
-     * Copies a folder and it's contents from one location to another.
-     * @param source File to be copied.
+     * Copies a folder and it's contents, copying files in parallel.
+     * Skips uid.dat and session.lock, like copyFileStructure.
+     * @param source Folder to be copied.
      * @param target Location to copy it to.
+     * @return Number of files and bytes copied, and how long it took.
+     * @throws IOException If a file could not be copied.
      */
-    public static void copyFileStructure(File source, File target){
+    public static Result copyDirectory(File source, File target) throws IOException {
+        final long start = System.currentTimeMillis();
+        final Path sourceRoot = source.toPath();
+        final Path targetRoot = target.toPath();
+        final List<Path> files = new ArrayList<>();
+
+        // Creates the folders first, so files can be copied in any order.
+        Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(targetRoot.resolve(sourceRoot.relativize(directory)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if(!IGNORED_FILES.contains(file.getFileName().toString())) {
+                    files.add(file);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        // Runs the parallel stream in its own pool, so it stays off the common pool.
+        final LongAdder bytes = new LongAdder();
         try {
-            ArrayList<String> ignore = new ArrayList<>(Arrays.asList("uid.dat", "session.lock"));
-            if(!ignore.contains(source.getName())) {
-                if(source.isDirectory()) {
-                    if(!target.exists())
-                        if (!target.mkdirs())
-                            throw new IOException("Couldn't create world directory!");
-                    String files[] = source.list();
-                    for (String file : files) {
-                        File srcFile = new File(source, file);
-                        File destFile = new File(target, file);
-                        copyFileStructure(srcFile, destFile);
-                    }
+            getCopyPool().submit(() -> files.parallelStream().forEach(file -> {
+                final Path destination = targetRoot.resolve(sourceRoot.relativize(file));
+
+                try {
+                    bytes.add(transfer(file, destination));
                 }
-                else {
-                    InputStream in = new FileInputStream(source);
-                    OutputStream out = new FileOutputStream(target);
-                    byte[] buffer = new byte[1024];
-                    int length;
-                    while ((length = in.read(buffer)) > 0)
-                        out.write(buffer, 0, length);
-                    in.close();
-                    out.flush();
-                    out.close();
+                catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
                 }
+            })).get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while copying " + source + ".", exception);
+        }
+        catch (ExecutionException exception) {
+            if(exception.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
             }
+
+            throw new IOException(exception.getCause());
+        }
+
+        return new Result(files.size(), bytes.sum(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Copies a folder and it's contents from one location to another.
+     * Skips uid.dat and session.lock, so the copy can be loaded alongside the original.
+     * @param source File to be copied.
+     * @param target Location to copy it to.
+     */
+    public static void copyFileStructure(File source, File target) {
+        try {
+            copy(source, target);
         }
         catch(IOException exception) {
             throw new RuntimeException(exception);
         }
     }
 
+    /**
+     * Copies a folder and it's contents from one location to another, one file at a time.
+     * Skips uid.dat and session.lock, so the copy can be loaded alongside the original.
+     * @param source File to be copied.
+     * @param target Location to copy it to.
+     * @return Number of files and bytes copied, and how long it took.
+     * @throws IOException If a file could not be copied.
+     */
+    public static Result copy(File source, File target) throws IOException {
+        final long start = System.currentTimeMillis();
+        final Path sourceRoot = source.toPath();
+        final Path targetRoot = target.toPath();
+        final long[] totals = new long[2];
+
+        Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(targetRoot.resolve(sourceRoot.relativize(directory)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if(!IGNORED_FILES.contains(file.getFileName().toString())) {
+                    totals[0]++;
+                    totals[1] += transfer(file, targetRoot.resolve(sourceRoot.relativize(file)));
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return new Result(totals[0], totals[1], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Stops the threads used by copyDirectory. Should be called when the plugin is disabled.
+     * They are started again if copyDirectory is used afterwards.
+     */
+    public static synchronized void shutdown() {
+        if(copyPool != null) {
+            copyPool.shutdown();
+            copyPool = null;
+        }
+    }
+
+    /**
+     * Get the pool copyDirectory copies files with, starting it if needed.
+     * It is separate from the common pool, and uses daemon threads so it never keeps the server running.
+     * @return Copy pool.
+     */
+    private static synchronized ForkJoinPool getCopyPool() {
+        if(copyPool == null) {
+            copyPool = new ForkJoinPool(Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())), pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setDaemon(true);
+                thread.setName("JadedCore copy #" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+
+        return copyPool;
+    }
+
     /**
      * Deletes a given folder and it's contents.
      * @param path Folder to delete.
      * @return Whether it was deleted successfully or not.
      */
     public static boolean deleteDirectory(File path) {
-        if(path.exists()) {
-            File files[] = path.listFiles();
-            for(int i=0; i < files.length; i++) {
-                if(files[i].isDirectory()) {
-                    deleteDirectory(files[i]);
+        if(!path.exists()) {
+            return false;
+        }
+
+        try {
+            delete(path);
+            return true;
+        }
+        catch (IOException exception) {
+            exception.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Deletes a file, or a folder and it's contents.
+     * Keeps going if a file cannot be deleted, and reports every failure at the end.
+     * @param path File or folder to delete.
+     * @return Number of files and bytes deleted, and how long it took.
+     * @throws IOException If anything could not be deleted.
+     */
+    public static Result delete(File path) throws IOException {
+        final long start = System.currentTimeMillis();
+        final long[] totals = new long[2];
+        final List<IOException> failures = new ArrayList<>();
+
+        Files.walkFileTree(path.toPath(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                try {
+                    Files.delete(file);
+                    totals[0]++;
+                    totals[1] += attributes.size();
                 }
-                else {
-                    files[i].delete();
+                catch (IOException exception) {
+                    failures.add(exception);
                 }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                failures.add(exception);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exception) {
+                if(exception != null) {
+                    failures.add(exception);
+                }
+
+                try {
+                    Files.delete(directory);
+                }
+                catch (IOException deleteException) {
+                    failures.add(deleteException);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if(!failures.isEmpty()) {
+            final IOException exception = new IOException("Could not delete " + failures.size() + " file(s) in " + path + ".");
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+
+        return new Result(totals[0], totals[1], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Get the total size of a file, or of every file in a folder.
+     * @param path File or folder to measure.
+     * @return Size in bytes.
+     * @throws IOException If the folder could not be read.
+     */
+    public static long getSize(File path) throws IOException {
+        try(Stream<Path> files = Files.walk(path.toPath())) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    /**
+     * Extracts a zip archive from a stream into a folder, as the stream is read.
+     * Does not close the stream.
+     * @param inputStream Stream of the zip archive.
+     * @param folder Folder to extract into.
+     * @throws IOException If the archive could not be read, or an entry is outside the folder.
+     */
+    public static void unzip(InputStream inputStream, File folder) throws IOException {
+        final Path root = folder.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        final ZipInputStream zipStream = new ZipInputStream(new BufferedInputStream(inputStream, 65536));
+        ZipEntry entry;
+        while((entry = zipStream.getNextEntry()) != null) {
+            final Path target = root.resolve(entry.getName()).normalize();
+
+            // Refuse entries that would be written outside the folder.
+            if(!target.startsWith(root)) {
+                throw new IOException("Zip entry " + entry.getName() + " is outside of " + root + ".");
+            }
+
+            if(entry.isDirectory()) {
+                Files.createDirectories(target);
+            }
+            else {
+                Files.createDirectories(target.getParent());
+                Files.copy(zipStream, target, StandardCopyOption.REPLACE_EXISTING);
             }
         }
-        return(path.delete());
     }
 
     /**
@@ -105,4 +323,37 @@ public class FileUtils {
         String extPattern = "(?<!^)[.]" + (removeAllExtensions ? ".*" : "[^.]*$");
         return filename.replaceAll(extPattern, "");
     }
-}
\ No newline at end of file
+
+    /**
+     * Copies a single file using FileChannel.transferTo, which lets the OS copy it without passing through the JVM.
+     * @param source File to copy.
+     * @param target Location to copy it to. Replaced if it already exists.
+     * @return Number of bytes copied.
+     * @throws IOException If the file could not be copied.
+     */
+    private static long transfer(Path source, Path target) throws IOException {
+        try(FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            while(position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+
+            return size;
+        }
+    }
+
+    /**
+     * The outcome of copying or deleting files.
+     * @param files Number of files.
+     * @param bytes Number of bytes.
+     * @param time How long it took, in milliseconds.
+     */
+    public record Result(long files, long bytes, long time) {
+        @Override
+        public String toString() {
+            return files + " files, " + (bytes / 1024) + " KB in " + time + "ms";
+        }
+    }
+}